@@ -12,15 +12,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.example.logging.CorrelationIdFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
 
 public class StreamLambdaHandler implements RequestStreamHandler {
+    private static final Logger log = LoggerFactory.getLogger(StreamLambdaHandler.class);
     private static SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> handler;
     static {
         try {
             handler = SpringBootLambdaContainerHandler.getAwsProxyHandler(Application.class);
         } catch (ContainerInitializationException e) {
             // if we fail here. We re-throw the exception to force another cold start
-            e.printStackTrace();
+            log.error("Could not initialize Spring Boot application", e);
             throw new RuntimeException("Could not initialize Spring Boot application", e);
         }
     }
@@ -28,6 +34,12 @@ public class StreamLambdaHandler implements RequestStreamHandler {
     @Override
     public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
             throws IOException {
-        handler.proxyStream(inputStream, outputStream, context);
+        // The servlet runs on this thread, so the request's log lines can fall back to the Lambda request id
+        MDC.put(CorrelationIdFilter.MDC_AWS_REQUEST_ID, context.getAwsRequestId());
+        try {
+            handler.proxyStream(inputStream, outputStream, context);
+        } finally {
+            MDC.remove(CorrelationIdFilter.MDC_AWS_REQUEST_ID);
+        }
     }
 }
\ No newline at end of file
@@ -1,18 +1,47 @@
 package org.example.controller;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.example.logging.LogMarkers;
+import org.example.model.FileUploadResult;
+import org.example.model.IngestionJob;
 import org.example.service.AIService;
+import org.example.service.AnswerStreamListener;
+import org.example.service.ChunkedUploadService;
+import org.example.service.CommitGate;
 import org.example.service.DocumentProcessingService;
+import org.example.service.HistoryService;
+import org.example.service.IngestionJobService;
+import org.example.service.QuestionKey;
+import org.example.service.StagedMultipartFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,6 +49,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.servlet.http.HttpServletRequest;
 
@@ -28,25 +58,48 @@ import jakarta.servlet.http.HttpServletRequest;
 @CrossOrigin(origins = "*") // Lambda compatibility - allows all origins
 public class AIController {
 
+    private static final Logger log = LoggerFactory.getLogger(AIController.class);
+
     @Autowired
     private AIService aiService;
 
     @Autowired
     private DocumentProcessingService documentProcessingService;
 
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private IngestionJobService ingestionJobService;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    @Qualifier("uploadExecutor")
+    private ThreadPoolTaskExecutor uploadExecutor;
+
+    @Value("${document.upload.batch-timeout-ms:25000}")
+    private long uploadBatchTimeoutMs;
+
+    @Autowired
+    @Qualifier("aiStreamExecutor")
+    private ThreadPoolTaskExecutor aiStreamExecutor;
+
+    @Value("${ai.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
     // ============================================
     // HEALTH CHECK ENDPOINT (Essential for testing)
     // ============================================
 
     @GetMapping("/health")
-    public ResponseEntity<Map<String, Object>> healthCheck() {
+    public ResponseEntity<Map<String, Object>> healthCheck(@RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("=== HEALTH CHECK DEBUG ===");
-
             // Test document service
-            int docCount = documentProcessingService.getDocumentCount();
-            List<String> docNames = documentProcessingService.getDocumentNames();
+            int docCount = documentProcessingService.getDocumentCount(sessionId);
+            List<String> docNames = documentProcessingService.getDocumentNames(sessionId);
 
             // Test AI service
             boolean aiReady = aiService != null && aiService.isConfigured();
@@ -57,16 +110,18 @@ public class AIController {
             response.put("aiService", aiReady ? "healthy" : "available but not configured");
             response.put("totalDocuments", docCount);
             response.put("documentNames", docNames);
+            response.put("extractedTextCache", documentProcessingService.getTextCacheStats());
+            response.put("documentStorage", documentProcessingService.getStorageStats());
+            response.put("aiRequests", aiService.getRequestStats());
             response.put("timestamp", System.currentTimeMillis());
             response.put("environment", "AWS Lambda");
             response.put("version", "1.0.0");
 
-            System.out.println("✅ Health check completed successfully");
+            log.debug("Health check completed: {} documents, AI ready {}", docCount, aiReady);
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ Health check failed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Health check failed: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("error", "Service unhealthy: " + e.getMessage());
             response.put("timestamp", System.currentTimeMillis());
@@ -87,47 +142,34 @@ public class AIController {
     // AI QUERY ENDPOINT
     // ============================================
 
+// ✅ NEW: Returns a future; the servlet thread is released while Gemini answers
 @PostMapping("/ask")
-public ResponseEntity<Map<String, Object>> askQuestion(
+public CompletableFuture<ResponseEntity<Map<String, Object>>> askQuestion(
         @RequestBody Map<String, Object> request,
         @RequestHeader(value = "X-Session-ID", required = false) String sessionId,
         HttpServletRequest httpRequest) {
     
     Map<String, Object> response = new HashMap<>();
     try {
-        System.out.println("=== AI QUERY DEBUG ===");
-        System.out.println("Session ID: " + sessionId);
-        System.out.println("Request received: " + request);
-
         // ✅ ENHANCED: Check for session-aware processing
         String question = String.valueOf(request.get("question")).trim();
         if (question.isEmpty()) {
             response.put("success", false);
             response.put("error", "Question cannot be empty");
-            return ResponseEntity.badRequest().body(response);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
         }
 
         // ✅ CRITICAL: Verify document state with session context
-        int docCount = documentProcessingService.getDocumentCount();
-        List<String> docNames = documentProcessingService.getDocumentNames();
+        int docCount = documentProcessingService.getDocumentCount(sessionId);
+        List<String> docNames = documentProcessingService.getDocumentNames(sessionId);
         
-        System.out.println("=== DOCUMENT STATE CHECK ===");
-        System.out.println("Document count: " + docCount);
-        System.out.println("Document names: " + docNames);
-        System.out.println("Session ID: " + sessionId);
-
-        // ✅ Force persistence check for restored sessions
-        if (sessionId != null && sessionId.contains("_2025-09-07_")) {
-            System.out.println("🔄 Detected restored session, ensuring document persistence");
-            documentProcessingService.ensureDocumentPersistence();
-        }
+        log.info(LogMarkers.VERBOSE, "Document state: {} documents {}", docCount, docNames);
 
-        String allDocumentsContent = documentProcessingService.getAllDocumentsContentEnhanced();
+        // ✅ Only the passages relevant to this question are sent to the AI
+        String allDocumentsContent = documentProcessingService.getRelevantDocumentsContent(sessionId, question);
         
-        System.out.println("=== CONTENT RETRIEVAL DEBUG ===");
-        System.out.println("Content length: " + (allDocumentsContent != null ? allDocumentsContent.length() : 0));
-        System.out.println("Content preview: " + (allDocumentsContent != null ? 
-            allDocumentsContent.substring(0, Math.min(200, allDocumentsContent.length())) : "null"));
+        log.info(LogMarkers.VERBOSE, "Retrieved context: {} chars for a {} char question",
+                allDocumentsContent != null ? allDocumentsContent.length() : 0, question.length());
 
         if (allDocumentsContent == null || allDocumentsContent.trim().isEmpty()) {
             response.put("success", false);
@@ -138,29 +180,174 @@ public ResponseEntity<Map<String, Object>> askQuestion(
                 "sessionId", sessionId != null ? sessionId : "none",
                 "suggestion", "Try refreshing the page and re-uploading files"
             ));
-            return ResponseEntity.badRequest().body(response);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
         }
 
         // ✅ Enhanced question processing with session context
         String contextualQuestion = buildSessionAwareQuestion(question, sessionId, docNames);
-        String answer = aiService.askQuestionEnhanced(contextualQuestion, allDocumentsContent);
-
-        response.put("success", true);
-        response.put("answer", answer);
-        response.put("question", question);
-        response.put("documentsAnalyzed", docCount);
-        response.put("documentNames", docNames);
-        response.put("sessionId", sessionId);
-        response.put("timestamp", System.currentTimeMillis());
+        // ✅ NEW: Keyed on the question as asked, so identical questions from other sessions over the same files share a call
+        QuestionKey questionKey = QuestionKey.of(question, documentProcessingService.getDocumentSetFingerprint(sessionId));
+        // ✅ NEW: "bypassCache": true forces a fresh Gemini answer (which then replaces the cached one)
+        boolean bypassCache = Boolean.parseBoolean(String.valueOf(request.get("bypassCache")));
+        List<Map<String, Object>> ingestingDocuments = documentProcessingService.getIngestingDocuments(sessionId);
+        int contextLength = allDocumentsContent.length();
+
+        return aiService.askQuestionAsync(contextualQuestion, allDocumentsContent,
+                rateLimitKey(request, sessionId, httpRequest), questionKey, bypassCache)
+                .thenApply(answer -> {
+                    response.put("success", true);
+                    response.put("answer", answer.text());
+                    response.put("cached", answer.cached());
+                    response.put("question", question);
+                    response.put("documentsAnalyzed", docCount);
+                    response.put("documentNames", docNames);
+                    response.put("contextLength", contextLength);
+                    // ✅ NEW: Documents still being ingested were answered from the pages extracted so far
+                    response.put("partial", !ingestingDocuments.isEmpty());
+                    if (!ingestingDocuments.isEmpty()) {
+                        response.put("ingestingDocuments", ingestingDocuments);
+                    }
+                    response.put("sessionId", sessionId);
+                    response.put("timestamp", System.currentTimeMillis());
 
-        return ResponseEntity.ok(response);
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> askFailed(response, e));
     } catch (Exception e) {
-        System.err.println("❌ Error in AI query: " + e.getMessage());
-        e.printStackTrace();
-        response.put("success", false);
-        response.put("error", "Error processing question: " + e.getMessage());
-        return ResponseEntity.status(500).body(response);
+        return CompletableFuture.completedFuture(askFailed(response, e));
+    }
+}
+
+private ResponseEntity<Map<String, Object>> askFailed(Map<String, Object> response, Throwable e) {
+    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    log.error("Error in AI query: {}", cause.getMessage(), cause);
+    response.put("success", false);
+    response.put("error", "Error processing question: " + cause.getMessage());
+    return ResponseEntity.status(500).body(response);
+}
+
+    /**
+     * ✅ NEW: Same as /ask, but the answer is sent as Server-Sent Events while Gemini generates it:
+     * "meta" (documents used), then "token" events of {"text": ...}, then "done" with the full answer;
+     * "error" replaces all of these when the question cannot be answered. Requests with "bypassCache"
+     * work as they do on /ask.
+     */
+    @PostMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter askQuestionStream(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = "X-Session-ID", required = false) String sessionId,
+            HttpServletRequest httpRequest) {
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        String question = String.valueOf(request.get("question")).trim();
+        if (question.isEmpty()) {
+            return failStream(emitter, "Question cannot be empty");
+        }
+
+        // The context is built on the request thread; only the Gemini call and relaying its output run on the stream pool
+        String allDocumentsContent = documentProcessingService.getRelevantDocumentsContent(sessionId, question);
+        if (allDocumentsContent == null || allDocumentsContent.trim().isEmpty()) {
+            return failStream(emitter, "Documents not found in AI backend. Please try re-uploading your files.");
+        }
+        List<String> docNames = documentProcessingService.getDocumentNames(sessionId);
+        List<Map<String, Object>> ingestingDocuments = documentProcessingService.getIngestingDocuments(sessionId);
+        String contextualQuestion = buildSessionAwareQuestion(question, sessionId, docNames);
+        QuestionKey questionKey = QuestionKey.of(question, documentProcessingService.getDocumentSetFingerprint(sessionId));
+        boolean bypassCache = Boolean.parseBoolean(String.valueOf(request.get("bypassCache")));
+        String userKey = rateLimitKey(request, sessionId, httpRequest);
+
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        emitter.onTimeout(() -> clientGone.set(true));
+        emitter.onError(error -> clientGone.set(true));
+        emitter.onCompletion(() -> clientGone.set(true));
+
+        try {
+            aiStreamExecutor.execute(() -> {
+                try {
+                    Map<String, Object> meta = new HashMap<>();
+                    meta.put("question", question);
+                    meta.put("documentsAnalyzed", docNames.size());
+                    meta.put("documentNames", docNames);
+                    meta.put("contextLength", allDocumentsContent.length());
+                    meta.put("partial", !ingestingDocuments.isEmpty());
+                    if (!ingestingDocuments.isEmpty()) {
+                        meta.put("ingestingDocuments", ingestingDocuments);
+                    }
+                    meta.put("sessionId", sessionId);
+                    emitter.send(SseEmitter.event().name("meta").data(meta, MediaType.APPLICATION_JSON));
+
+                    String answer = aiService.streamQuestionEnhanced(contextualQuestion, allDocumentsContent, userKey,
+                            questionKey, bypassCache, new AnswerStreamListener() {
+                                @Override
+                                public void onText(String text) {
+                                    if (clientGone.get()) {
+                                        return;
+                                    }
+                                    try {
+                                        emitter.send(SseEmitter.event().name("token")
+                                                .data(Map.of("text", text), MediaType.APPLICATION_JSON));
+                                    } catch (IOException | IllegalStateException e) {
+                                        log.info("AI stream client disconnected: {}", e.getMessage());
+                                        clientGone.set(true);
+                                    }
+                                }
+
+                                @Override
+                                public boolean isCancelled() {
+                                    return clientGone.get();
+                                }
+                            });
+
+                    if (!clientGone.get()) {
+                        emitter.send(SseEmitter.event().name("done").data(Map.of(
+                                "answer", answer,
+                                "timestamp", System.currentTimeMillis()
+                        ), MediaType.APPLICATION_JSON));
+                        emitter.complete();
+                    }
+                } catch (Exception e) {
+                    log.warn("AI stream ended with an error: {}", e.getMessage());
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("AI stream rejected, {} streams already open", aiStreamExecutor.getActiveCount());
+            return failStream(emitter, "Too many answers are streaming right now. Please retry shortly or use /ask.");
+        }
+        return emitter;
+    }
+
+    // ✅ NEW: Sends a single "error" event and closes the stream
+    private SseEmitter failStream(SseEmitter emitter, String error) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of(
+                    "success", false,
+                    "error", error,
+                    "timestamp", System.currentTimeMillis()
+            ), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+// ✅ NEW: Whose rate-limit bucket a call is charged to: the signed-in user, else the session, else the client address
+private String rateLimitKey(Map<String, Object> request, String sessionId, HttpServletRequest httpRequest) {
+    if (request != null && request.get("metadata") instanceof Map<?, ?> metadata) {
+        Object userId = metadata.get("userId");
+        if (userId != null && !String.valueOf(userId).isBlank() && !"anonymous".equals(userId)) {
+            return "user:" + userId;
+        }
+    }
+    if (sessionId != null && !sessionId.isBlank()) {
+        return "session:" + sessionId;
+    }
+    String forwardedFor = httpRequest.getHeader("X-Forwarded-For");
+    if (forwardedFor != null && !forwardedFor.isBlank()) {
+        return "ip:" + forwardedFor.split(",")[0].trim();
     }
+    return "ip:" + httpRequest.getRemoteAddr();
 }
 
 // ✅ HELPER: Build session-aware question
@@ -178,19 +365,20 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
     // Add these methods to AIController.java
 
     @PostMapping("/clear-cache")
-    public ResponseEntity<Map<String, Object>> clearCache(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> clearCache(@RequestBody Map<String, Object> request,
+                                                          @RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("=== CACHE CLEAR REQUEST ===");
-            System.out.println("Request: " + request);
+            log.info("Cache clear requested");
 
             // Reset AI service state
             if (aiService != null) {
                 aiService.resetState();
+                aiService.clearAnswerCache(documentProcessingService.getDocumentSetFingerprint(sessionId));
             }
 
             // Clear document processing service
-            documentProcessingService.clearAllDocuments();
+            documentProcessingService.clearAllDocuments(sessionId);
 
             response.put("success", true);
             response.put("message", "Cache cleared successfully");
@@ -198,7 +386,7 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("❌ Error clearing cache: " + e.getMessage());
+            log.error("Error clearing cache: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("error", "Error clearing cache: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
@@ -209,8 +397,7 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
     public ResponseEntity<Map<String, Object>> resetContext(@RequestBody Map<String, Object> request) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("=== CONTEXT RESET REQUEST ===");
-            System.out.println("Request: " + request);
+            log.info("Context reset requested");
 
             // Reset AI service context
             if (aiService != null) {
@@ -223,7 +410,7 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
-            System.err.println("❌ Error resetting context: " + e.getMessage());
+            log.error("Error resetting context: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("error", "Error resetting context: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
@@ -303,53 +490,129 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
     // ============================================
 
     @GetMapping("/summary")
-    public ResponseEntity<Map<String, Object>> getSummary() {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getSummary(
+            @RequestHeader(value = "X-Session-ID", required = false) String sessionId,
+            @RequestParam(value = "refresh", defaultValue = "false") boolean refresh,
+            HttpServletRequest httpRequest) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("=== SUMMARY GENERATION DEBUG ===");
-
-            String allDocumentsContent = documentProcessingService.getAllDocumentsContentEnhanced();
-            System.out.println("Document count for summary: " + documentProcessingService.getDocumentCount());
-            System.out.println("Content length: " + (allDocumentsContent != null ? allDocumentsContent.length() : 0));
+            String allDocumentsContent = documentProcessingService.getAllDocumentsContentEnhanced(sessionId);
+            log.info(LogMarkers.VERBOSE, "Summary content: {} chars", allDocumentsContent != null ? allDocumentsContent.length() : 0);
 
             if (allDocumentsContent == null || allDocumentsContent.trim().isEmpty()) {
                 response.put("success", false);
                 response.put("error", "No documents uploaded. Please upload documents first using the /api/ai/upload/multiple endpoint.");
                 response.put("availableEndpoints", List.of("/api/ai/upload/multiple", "/api/ai/health", "/api/ai/status"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(response));
+            }
+
+            int documentCount = documentProcessingService.getDocumentCount(sessionId);
+            List<String> documentNames = documentProcessingService.getDocumentNames(sessionId);
+
+            return aiService.generateSummaryAsync(allDocumentsContent, rateLimitKey(null, sessionId, httpRequest),
+                            QuestionKey.of(AIService.SUMMARY_QUESTION, documentProcessingService.getDocumentSetFingerprint(sessionId)), refresh)
+                    .thenApply(summary -> {
+                        response.put("success", true);
+                        response.put("summary", summary.text());
+                        response.put("cached", summary.cached());
+                        response.put("documentsAnalyzed", documentCount);
+                        response.put("documentNames", documentNames);
+                        response.put("timestamp", System.currentTimeMillis());
+
+                        log.info("Summary generated successfully");
+                        return ResponseEntity.ok(response);
+                    })
+                    .exceptionally(e -> summaryFailed(response, e));
+
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(summaryFailed(response, e));
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> summaryFailed(Map<String, Object> response, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("Error generating summary: {}", cause.getMessage(), cause);
+        response.put("success", false);
+        response.put("error", "Error generating summary: " + cause.getMessage());
+        response.put("timestamp", System.currentTimeMillis());
+        return ResponseEntity.status(500).body(response);
+    }
+
+    // ============================================
+    // FULL-TEXT SEARCH ENDPOINT
+    // ============================================
+
+    @PostMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchDocuments(@RequestBody Map<String, Object> request,
+                                                               @RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            long startTime = System.currentTimeMillis();
+            String query = request.get("query") != null ? String.valueOf(request.get("query")).trim() : "";
+            if (query.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Search query cannot be empty");
                 return ResponseEntity.badRequest().body(response);
             }
 
-            String summary = aiService.generateSummaryEnhanced(allDocumentsContent);
+            int maxResults = parsePositiveInt(request.get("maxResults"), 20);
+            int snippetsPerDocument = parsePositiveInt(request.get("snippetsPerDocument"), 5);
+
+            List<DocumentProcessingService.SearchHit> results =
+                    documentProcessingService.searchDocuments(sessionId, query, maxResults, snippetsPerDocument);
+            int totalHits = results.stream().mapToInt(DocumentProcessingService.SearchHit::getHitCount).sum();
+
+            // ✅ Record in the user's unified session when the caller identifies the user
+            Object userId = request.get("userId");
+            if (userId != null && !String.valueOf(userId).isBlank()) {
+                try {
+                    historyService.addSearchToSession(String.valueOf(userId), query, "SERVER_SEARCH", totalHits);
+                } catch (Exception historyError) {
+                    log.warn("Search succeeded but history recording failed: {}", historyError.getMessage());
+                }
+            }
 
             response.put("success", true);
-            response.put("summary", summary);
-            response.put("documentsAnalyzed", documentProcessingService.getDocumentCount());
-            response.put("documentNames", documentProcessingService.getDocumentNames());
+            response.put("query", query);
+            response.put("results", results);
+            response.put("documentsMatched", results.size());
+            response.put("totalHits", totalHits);
+            response.put("totalDocuments", documentProcessingService.getDocumentCount(sessionId));
+            response.put("tookMs", System.currentTimeMillis() - startTime);
             response.put("timestamp", System.currentTimeMillis());
-
-            System.out.println("✅ Summary generated successfully");
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ Error generating summary: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in document search: {}", e.getMessage(), e);
             response.put("success", false);
-            response.put("error", "Error generating summary: " + e.getMessage());
-            response.put("timestamp", System.currentTimeMillis());
+            response.put("error", "Error searching documents: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    private int parsePositiveInt(Object value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(String.valueOf(value));
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     // ============================================
     // SINGLE FILE UPLOAD ENDPOINT
     // ============================================
 
     @PostMapping("/upload")
-    public ResponseEntity<Map<String, Object>> uploadSingleFile(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> uploadSingleFile(@RequestParam("file") MultipartFile file,
+                                                                @RequestParam(value = "async", defaultValue = "false") boolean async,
+                                                                @RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("=== SINGLE FILE UPLOAD DEBUG ===");
-            System.out.println("File: " + file.getOriginalFilename() + " (size: " + file.getSize() + " bytes)");
+            log.info("Single file upload: {} ({} bytes, async {})", file.getOriginalFilename(), file.getSize(), async);
 
             if (file.isEmpty()) {
                 response.put("success", false);
@@ -357,22 +620,44 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
                 return ResponseEntity.badRequest().body(response);
             }
 
-            String result = documentProcessingService.processDocument(file);
+            // ✅ NEW: Hand large files to a background ingestion job and return its id immediately
+            if (async) {
+                IngestionJob job = ingestionJobService.submit(sessionId, file);
+                response.put("success", true);
+                response.put("message", "File accepted for processing: " + file.getOriginalFilename());
+                response.put("jobId", job.getId());
+                response.put("status", job.getStatus());
+                response.put("statusUrl", "/api/ai/jobs/" + job.getId());
+                response.put("filename", file.getOriginalFilename());
+                response.put("fileSize", file.getSize());
+                response.put("timestamp", System.currentTimeMillis());
+                return ResponseEntity.accepted().body(response);
+            }
+
+            DocumentProcessingService.StoredDocument stored = documentProcessingService.storeDocument(sessionId, file);
 
             response.put("success", true);
             response.put("message", "File uploaded successfully: " + file.getOriginalFilename());
+            response.put("documentId", stored.getDocument().getId());
+            response.put("duplicate", stored.isDuplicate());
+            if (stored.getNormalization() != null) {
+                response.put("normalization", stored.getNormalization().toMap());
+            }
+            response.put("truncated", stored.getDocument().isTruncated());
+            if (stored.getDocument().isTruncated()) {
+                response.put("truncationReason", stored.getDocument().getTruncationReason());
+            }
             response.put("filename", file.getOriginalFilename());
             response.put("fileSize", file.getSize());
-            response.put("totalDocuments", documentProcessingService.getDocumentCount());
-            response.put("documentNames", documentProcessingService.getDocumentNames());
+            response.put("totalDocuments", documentProcessingService.getDocumentCount(sessionId));
+            response.put("documentNames", documentProcessingService.getDocumentNames(sessionId));
             response.put("timestamp", System.currentTimeMillis());
 
-            System.out.println("✅ Single file upload successful: " + file.getOriginalFilename());
+            log.info("Single file upload successful: {}", file.getOriginalFilename());
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ Error in single file upload: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in single file upload: {}", e.getMessage(), e);
             response.put("success", false);
             response.put("error", "Error uploading file: " + e.getMessage());
             response.put("timestamp", System.currentTimeMillis());
@@ -385,11 +670,11 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
     // ============================================
 
     @PostMapping("/upload/multiple")
-    public ResponseEntity<Map<String, Object>> uploadMultipleFiles(@RequestParam("files") MultipartFile[] files) {
+    public ResponseEntity<Map<String, Object>> uploadMultipleFiles(@RequestParam("files") MultipartFile[] files,
+                                                                   @RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("=== MULTI-FILE UPLOAD DEBUG ===");
-            System.out.println("Received " + files.length + " files for upload");
+            log.info("Multi-file upload: {} files", files.length);
 
             if (files.length == 0) {
                 response.put("success", false);
@@ -398,67 +683,77 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
             }
 
             // ✅ ENHANCED: Clear and reinitialize document storage
-//            documentProcessingService.clearAllDocuments();
+//            documentProcessingService.clearAllDocuments(sessionId);
 
-            int successCount = 0;
-            List<String> successFiles = new ArrayList<>();
-            List<String> failedFiles = new ArrayList<>();
-            long totalSize = 0;
+            // ✅ NEW: Extract files concurrently on the bounded upload pool under one overall deadline
+            long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(uploadBatchTimeoutMs);
+            List<FileUploadResult> results = new ArrayList<>(files.length);
+            List<Future<FileUploadResult>> pending = new ArrayList<>(files.length);
+            List<CommitGate> gates = new ArrayList<>(files.length);
 
             for (MultipartFile file : files) {
-                try {
-                    System.out.println("=== PROCESSING FILE: " + file.getOriginalFilename() + " ===");
-                    System.out.println("File size: " + file.getSize() + " bytes");
-                    System.out.println("Content type: " + file.getContentType());
-
-                    if (file.isEmpty()) {
-                        String error = file.getOriginalFilename() + " (file is empty)";
-                        failedFiles.add(error);
-                        System.out.println("❌ Skipping empty file: " + file.getOriginalFilename());
-                        continue;
-                    }
-
-                    // ✅ ENHANCED: Validate content before processing
-                    if (file.getSize() > 10 * 1024 * 1024) { // 10MB limit
-                        String error = file.getOriginalFilename() + " (file too large: " + file.getSize() + " bytes)";
-                        failedFiles.add(error);
-                        System.out.println("❌ File too large: " + file.getOriginalFilename());
-                        continue;
-                    }
-
-                    String result = documentProcessingService.processDocument(file);
+                log.debug("Queueing file: {} ({} bytes, {})", file.getOriginalFilename(), file.getSize(), file.getContentType());
+
+                CommitGate gate = new CommitGate();
+                gates.add(gate);
+                if (file.isEmpty()) {
+                    pending.add(CompletableFuture.completedFuture(FileUploadResult.failure(file.getOriginalFilename(),
+                            file.getSize(), FileUploadResult.Status.REJECTED, "file is empty", 0)));
+                } else if (file.getSize() > 10 * 1024 * 1024) { // 10MB limit
+                    pending.add(CompletableFuture.completedFuture(FileUploadResult.failure(file.getOriginalFilename(),
+                            file.getSize(), FileUploadResult.Status.REJECTED,
+                            "file too large: " + file.getSize() + " bytes, use /api/ai/upload/chunked", 0)));
+                } else {
+                    pending.add(uploadExecutor.submit(() -> processUploadedFile(sessionId, file, gate)));
+                }
+            }
 
-                    // ✅ CRITICAL: Verify document was actually stored
-                    int documentsAfterProcessing = documentProcessingService.getDocumentCount();
-                    if (documentsAfterProcessing > successCount) {
-                        successCount++;
-                        successFiles.add(file.getOriginalFilename());
-                        totalSize += file.getSize();
-                        System.out.println("✅ Successfully processed and stored: " + file.getOriginalFilename());
+            for (int i = 0; i < files.length; i++) {
+                MultipartFile file = files[i];
+                Future<FileUploadResult> future = pending.get(i);
+                try {
+                    long remainingNanos = Math.max(0, deadlineNanos - System.nanoTime());
+                    results.add(future.get(remainingNanos, TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    if (gates.get(i).cancel()) {
+                        future.cancel(true);
+                        results.add(FileUploadResult.failure(file.getOriginalFilename(), file.getSize(),
+                                FileUploadResult.Status.TIMED_OUT,
+                                "processing exceeded the " + uploadBatchTimeoutMs + " ms batch deadline", uploadBatchTimeoutMs));
+                        log.warn("Upload deadline reached, cancelled: {}", file.getOriginalFilename());
                     } else {
-                        String error = file.getOriginalFilename() + " (processing completed but document not stored)";
-                        failedFiles.add(error);
-                        System.out.println("❌ Processing completed but storage failed: " + file.getOriginalFilename());
+                        // Already being stored: reporting it as timed out would hide a document that does appear
+                        log.info("Upload deadline reached while storing, waiting for: {}", file.getOriginalFilename());
+                        results.add(future.get());
                     }
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    results.add(FileUploadResult.failure(file.getOriginalFilename(), file.getSize(),
+                            FileUploadResult.Status.FAILED, cause.getMessage(), 0));
+                }
+            }
 
-                } catch (Exception e) {
-                    String error = file.getOriginalFilename() + " (" + e.getMessage() + ")";
-                    failedFiles.add(error);
-                    System.err.println("❌ Failed to process: " + file.getOriginalFilename() + " - " + e.getMessage());
-                    e.printStackTrace();
+            List<String> successFiles = new ArrayList<>();
+            List<String> failedFiles = new ArrayList<>();
+            long totalSize = 0;
+            for (FileUploadResult result : results) {
+                if (result.isSuccess()) {
+                    successFiles.add(result.getFilename());
+                    totalSize += result.getFileSize();
+                } else {
+                    failedFiles.add(result.describeFailure());
                 }
             }
+            int successCount = successFiles.size();
 
             // ✅ ENHANCED: Final verification
-            int finalDocumentCount = documentProcessingService.getDocumentCount();
-            List<String> finalDocumentNames = documentProcessingService.getDocumentNames();
+            int finalDocumentCount = documentProcessingService.getDocumentCount(sessionId);
+            List<String> finalDocumentNames = documentProcessingService.getDocumentNames(sessionId);
 
-            System.out.println("=== FINAL RESULTS ===");
-            System.out.println("Success count: " + successCount);
-            System.out.println("Final document count: " + finalDocumentCount);
-            System.out.println("Document names: " + finalDocumentNames);
+            log.info("Multi-file upload finished: {}/{} stored, {} documents in session", successCount, files.length,
+                    finalDocumentCount);
 
-            documentProcessingService.ensureDocumentPersistence();
+            documentProcessingService.ensureDocumentPersistence(sessionId);
 
             response.put("success", finalDocumentCount>0);
             response.put("message", "Processed " + successCount + " out of " + files.length + " files");
@@ -468,14 +763,14 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
             response.put("failedFiles", failedFiles);
             response.put("failCount", failedFiles.size());
             response.put("documentNames", finalDocumentNames);
+            response.put("results", results);
             response.put("totalUploadSize", totalSize);
             response.put("timestamp", System.currentTimeMillis());
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ Critical error in uploadMultipleFiles: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Critical error in uploadMultipleFiles: {}", e.getMessage(), e);
 
             response.put("success", false);
             response.put("error", "Critical processing error: " + e.getMessage());
@@ -489,16 +784,279 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
     }
 
 
+    // ✅ NEW: Runs on the upload pool; the outcome comes from the store call itself, not from document counts
+    private FileUploadResult processUploadedFile(String sessionId, MultipartFile file, CommitGate gate) {
+        long startTime = System.currentTimeMillis();
+        try {
+            DocumentProcessingService.StoredDocument stored = documentProcessingService.storeDocument(sessionId, file, gate);
+            DocumentProcessingService.DocumentInfo document = stored.getDocument();
+            log.debug("Processed and stored: {}", file.getOriginalFilename());
+            FileUploadResult result = FileUploadResult.success(file.getOriginalFilename(), file.getSize(), document.getId(),
+                    document.getContentLength(), System.currentTimeMillis() - startTime);
+            if (stored.isDuplicate()) {
+                result.setDuplicateOf(document.getFilename());
+            }
+            if (document.isTruncated()) {
+                result.setTruncationReason(document.getTruncationReason());
+            }
+            if (stored.getNormalization() != null) {
+                result.setCharactersSaved(stored.getNormalization().getCharactersSaved());
+                result.setEstimatedTokensSaved(stored.getNormalization().getEstimatedTokensSaved());
+            }
+            return result;
+        } catch (Exception e) {
+            log.warn("Failed to process {}: {}", file.getOriginalFilename(), e.getMessage());
+            return FileUploadResult.failure(file.getOriginalFilename(), file.getSize(),
+                    FileUploadResult.Status.FAILED, e.getMessage(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    // ============================================
+    // CHUNKED (RESUMABLE) UPLOAD ENDPOINTS
+    // ============================================
+
+    @PostMapping("/upload/chunked")
+    public ResponseEntity<Map<String, Object>> initChunkedUpload(@RequestBody Map<String, Object> request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            String filename = (String) request.get("filename");
+            String contentType = (String) request.get("contentType");
+            Object fileSize = request.get("fileSize");
+            Object chunkSize = request.get("chunkSize");
+            if (!(fileSize instanceof Number)) {
+                response.put("success", false);
+                response.put("error", "fileSize is required");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            ChunkedUploadService.ChunkedUpload upload = chunkedUploadService.init(filename, contentType,
+                    ((Number) fileSize).longValue(),
+                    chunkSize instanceof Number ? ((Number) chunkSize).intValue() : null,
+                    (String) request.get("sha256"));
+
+            response.put("success", true);
+            response.put("uploadId", upload.getUploadId());
+            response.put("chunkSize", upload.getChunkSize());
+            response.put("totalChunks", upload.getTotalChunks());
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error starting chunked upload: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Error starting chunked upload: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @PutMapping("/upload/chunked/{uploadId}/chunks/{index}")
+    public ResponseEntity<Map<String, Object>> uploadChunk(@PathVariable String uploadId,
+                                                           @PathVariable int index,
+                                                           @RequestHeader(value = "X-Chunk-SHA256", required = false) String chunkSha256,
+                                                           HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            // The raw request body is streamed into the upload file; it is never read into memory
+            boolean written = chunkedUploadService.writeChunk(uploadId, index, chunkSha256, request.getInputStream());
+            ChunkedUploadService.ChunkedUpload upload = chunkedUploadService.getUpload(uploadId);
+
+            response.put("success", true);
+            response.put("uploadId", uploadId);
+            response.put("index", index);
+            response.put("alreadyReceived", !written);
+            response.put("receivedChunks", upload.getReceivedChunkCount());
+            response.put("totalChunks", upload.getTotalChunks());
+            return ResponseEntity.ok(response);
+
+        } catch (NoSuchElementException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(404).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error writing chunk {} of {}: {}", index, uploadId, e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Error writing chunk: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @GetMapping("/upload/chunked/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getChunkedUploadStatus(@PathVariable String uploadId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ChunkedUploadService.ChunkedUpload upload = chunkedUploadService.getUpload(uploadId);
+            List<Integer> missingChunks = upload.getMissingChunks();
+
+            response.put("success", true);
+            response.put("uploadId", uploadId);
+            response.put("filename", upload.getFilename());
+            response.put("fileSize", upload.getFileSize());
+            response.put("chunkSize", upload.getChunkSize());
+            response.put("totalChunks", upload.getTotalChunks());
+            response.put("receivedChunks", upload.getReceivedChunkCount());
+            response.put("bytesReceived", upload.getBytesReceived());
+            response.put("missingChunks", missingChunks);
+            response.put("complete", missingChunks.isEmpty());
+            return ResponseEntity.ok(response);
+
+        } catch (NoSuchElementException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(404).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error reading upload: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @PostMapping("/upload/chunked/{uploadId}/complete")
+    public ResponseEntity<Map<String, Object>> completeChunkedUpload(@PathVariable String uploadId,
+                                                                     @RequestParam(value = "async", defaultValue = "false") boolean async,
+                                                                     @RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            StagedMultipartFile file = chunkedUploadService.assemble(uploadId);
+            log.info("Chunked upload assembled: {} ({} bytes)", file.getOriginalFilename(), file.getSize());
+
+            if (async) {
+                IngestionJob job = ingestionJobService.submit(sessionId, file);
+                chunkedUploadService.discard(uploadId);
+                response.put("success", true);
+                response.put("jobId", job.getId());
+                response.put("status", job.getStatus());
+                response.put("statusUrl", "/api/ai/jobs/" + job.getId());
+                response.put("filename", file.getOriginalFilename());
+                response.put("fileSize", file.getSize());
+                response.put("timestamp", System.currentTimeMillis());
+                return ResponseEntity.accepted().body(response);
+            }
+
+            DocumentProcessingService.StoredDocument stored = documentProcessingService.storeDocument(sessionId, file);
+            chunkedUploadService.discard(uploadId);
+
+            response.put("success", true);
+            response.put("message", "File uploaded successfully: " + file.getOriginalFilename());
+            response.put("documentId", stored.getDocument().getId());
+            response.put("duplicate", stored.isDuplicate());
+            if (stored.getNormalization() != null) {
+                response.put("normalization", stored.getNormalization().toMap());
+            }
+            response.put("truncated", stored.getDocument().isTruncated());
+            if (stored.getDocument().isTruncated()) {
+                response.put("truncationReason", stored.getDocument().getTruncationReason());
+            }
+            response.put("filename", file.getOriginalFilename());
+            response.put("fileSize", file.getSize());
+            response.put("totalDocuments", documentProcessingService.getDocumentCount(sessionId));
+            response.put("documentNames", documentProcessingService.getDocumentNames(sessionId));
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+
+        } catch (NoSuchElementException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(404).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error completing chunked upload {}: {}", uploadId, e.getMessage(), e);
+            response.put("success", false);
+            response.put("error", "Error uploading file: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @DeleteMapping("/upload/chunked/{uploadId}")
+    public ResponseEntity<Map<String, Object>> abortChunkedUpload(@PathVariable String uploadId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            chunkedUploadService.discard(uploadId);
+            response.put("success", true);
+            response.put("uploadId", uploadId);
+            return ResponseEntity.ok(response);
+
+        } catch (NoSuchElementException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(404).body(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error aborting upload: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    // ============================================
+    // INGESTION JOB STATUS ENDPOINT
+    // ============================================
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getIngestionJob(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            Optional<IngestionJob> found = ingestionJobService.findJob(jobId);
+            if (found.isEmpty()) {
+                response.put("success", false);
+                response.put("error", "Unknown job: " + jobId);
+                return ResponseEntity.status(404).body(response);
+            }
+
+            IngestionJob job = found.get();
+            response.put("success", true);
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            response.put("finished", job.isFinished());
+            response.put("filename", job.getFilename());
+            response.put("fileSize", job.getFileSize());
+            response.put("attempts", job.getAttempts());
+            response.put("pagesProcessed", job.getPagesProcessed());
+            response.put("totalPages", job.getTotalPages());
+            response.put("pagesReady", job.getStatus() == IngestionJob.Status.COMPLETED ? job.getTotalPages() : job.getPagesReady());
+            response.put("progressPercent", job.getStatus() == IngestionJob.Status.COMPLETED ? 100
+                    : job.getTotalPages() > 0 ? job.getPagesProcessed() * 100 / job.getTotalPages() : 0);
+            response.put("createdAt", job.getCreatedAt());
+            response.put("startedAt", job.getStartedAt());
+            response.put("completedAt", job.getCompletedAt());
+            if (job.getDocumentId() != null) {
+                response.put("documentId", job.getDocumentId());
+                response.put("duplicate", job.isDuplicate());
+                response.put("contentLength", job.getContentLength());
+                response.put("truncated", job.getTruncationReason() != null);
+            }
+            if (job.getError() != null) {
+                response.put("error", job.getError());
+            }
+            response.put("timestamp", System.currentTimeMillis());
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("error", "Error reading job: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
     // ============================================
     // STATUS ENDPOINT
     // ============================================
 
     @GetMapping("/status")
-    public ResponseEntity<Map<String, Object>> getStatus() {
+    public ResponseEntity<Map<String, Object>> getStatus(@RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            int documentCount = documentProcessingService.getDocumentCount();
-            List<String> documentNames = documentProcessingService.getDocumentNames();
+            int documentCount = documentProcessingService.getDocumentCount(sessionId);
+            List<String> documentNames = documentProcessingService.getDocumentNames(sessionId);
             boolean aiConfigured = aiService != null && aiService.isConfigured();
 
             response.put("success", true);
@@ -523,11 +1081,11 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
     // ============================================
 
     @DeleteMapping("/documents")
-    public ResponseEntity<Map<String, Object>> clearAllDocuments() {
+    public ResponseEntity<Map<String, Object>> clearAllDocuments(@RequestHeader(value = "X-Session-ID", required = false) String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            int documentCount = documentProcessingService.getDocumentCount();
-            documentProcessingService.clearAllDocuments();
+            int documentCount = documentProcessingService.getDocumentCount(sessionId);
+            documentProcessingService.clearAllDocuments(sessionId);
 
             if (aiService != null) {
                 aiService.resetState();
@@ -564,9 +1122,12 @@ private String buildSessionAwareQuestion(String question, String sessionId, List
         response.put("endpoints", Map.of(
                 "GET /api/ai/health", "System health check",
                 "GET /api/ai/status", "Current system status",
-                "POST /api/ai/upload", "Upload single document",
+                "POST /api/ai/upload", "Upload single document (?async=true returns an ingestion job id)",
+                "GET /api/ai/jobs/{id}", "Ingestion job progress and result",
+                "POST /api/ai/upload/chunked", "Start a resumable chunked upload (PUT .../chunks/{n}, POST .../complete)",
                 "POST /api/ai/upload/multiple", "Upload multiple documents",
                 "POST /api/ai/ask", "Query documents with AI",
+                "POST /api/ai/search", "Ranked full-text search with snippets",
                 "GET /api/ai/summary", "Get document summary",
                 "DELETE /api/ai/documents", "Clear all documents"
         ));
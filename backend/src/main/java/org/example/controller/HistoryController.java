@@ -6,6 +6,8 @@ import org.example.model.SearchHistory;
 import org.example.service.HistoryService;
 import org.example.repository.ChatMessageRepository;
 import org.example.repository.SearchHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,6 +23,8 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class HistoryController {
 
+    private static final Logger log = LoggerFactory.getLogger(HistoryController.class);
+
     @Autowired
     private HistoryService historyService;
 
@@ -281,7 +285,7 @@ public class HistoryController {
     public ResponseEntity<Map<String, Object>> getCompleteSessionHistory(@PathVariable String sessionId) {
         Map<String, Object> response = new HashMap<>();
         try {
-            System.out.println("📋 Getting complete history for session: " + sessionId);
+            log.debug("Getting complete history for session {}", sessionId);
 
             // ✅ Get the session first
             ChatSession session = historyService.getChatSessionById(sessionId);
@@ -354,14 +358,12 @@ public class HistoryController {
             stats.put("restoredAt", LocalDateTime.now());
             response.put("restorationStats", stats);
 
-            System.out.println("✅ Complete session history retrieved: " +
-                    allMessages.size() + " messages, " + searchHistory.size() + " searches");
+            log.info("Complete session history retrieved: {} messages, {} searches", allMessages.size(), searchHistory.size());
 
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ Error getting complete session history: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting complete session history for {}: {}", sessionId, e.getMessage(), e);
             response.put("success", false);
             response.put("error", "Error fetching complete session history: " + e.getMessage());
             return ResponseEntity.status(500).body(response);
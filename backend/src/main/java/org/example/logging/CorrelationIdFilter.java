@@ -0,0 +1,66 @@
+package org.example.logging;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tags every log line of a request with a correlation id (and the session id, when there is one).
+ * A caller-supplied X-Correlation-ID / X-Request-ID is reused, otherwise the Lambda request id, otherwise
+ * a fresh one; it is echoed back in the X-Correlation-ID response header.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelationIdFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Correlation-ID";
+    public static final String MDC_CORRELATION_ID = "correlationId";
+    public static final String MDC_SESSION_ID = "sessionId";
+    public static final String MDC_AWS_REQUEST_ID = "awsRequestId";
+
+    private static final int MAX_ID_LENGTH = 64;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String correlationId = firstPresent(request.getHeader(HEADER), request.getHeader("X-Request-ID"),
+                MDC.get(MDC_AWS_REQUEST_ID));
+        if (correlationId == null) {
+            correlationId = UUID.randomUUID().toString().substring(0, 8);
+        }
+        String sessionId = firstPresent(request.getHeader("X-Session-ID"));
+
+        MDC.put(MDC_CORRELATION_ID, correlationId);
+        if (sessionId != null) {
+            MDC.put(MDC_SESSION_ID, sessionId);
+        }
+        response.setHeader(HEADER, correlationId);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_CORRELATION_ID);
+            MDC.remove(MDC_SESSION_ID);
+        }
+    }
+
+    // Header values end up in every log line, so they are trimmed and capped
+    private static String firstPresent(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                String trimmed = value.strip();
+                return trimmed.length() > MAX_ID_LENGTH ? trimmed.substring(0, MAX_ID_LENGTH) : trimmed;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+/**
+ * Markers understood by the logging configuration.
+ */
+public final class LogMarkers {
+
+    /**
+     * Per-request diagnostics (context sizes, chunk selection, partition state). Useful when chasing a
+     * problem, too chatty to keep for every request: {@link VerboseSamplingFilter} lets through the events
+     * of one request in {@code logging.app.verbose-sample-every}, all of them or none, and everything when
+     * the logger is at DEBUG.
+     */
+    public static final Marker VERBOSE = MarkerFactory.getMarker("VERBOSE");
+
+    private LogMarkers() {
+    }
+}
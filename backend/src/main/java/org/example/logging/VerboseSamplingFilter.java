@@ -0,0 +1,40 @@
+package org.example.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Samples events marked {@link LogMarkers#VERBOSE}. Requests are sampled as a whole by their correlation
+ * id, so a sampled request keeps all of its diagnostics; events outside a request are sampled one in N.
+ * Runs before the event is built, so dropped events cost neither formatting nor a queue slot.
+ */
+public class VerboseSamplingFilter extends TurboFilter {
+
+    private final AtomicLong unkeyedEvents = new AtomicLong();
+    private int sampleEvery = 100;
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || !marker.contains(LogMarkers.VERBOSE)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (sampleEvery <= 1 || logger.isDebugEnabled()) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String correlationId = MDC.get(CorrelationIdFilter.MDC_CORRELATION_ID);
+        long key = correlationId != null ? correlationId.hashCode() : unkeyedEvents.getAndIncrement();
+        return Math.floorMod(key, sampleEvery) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.model;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -13,6 +15,8 @@ import java.util.Map;
 @Document(collection = "chat_sessions")
 public class ChatSession {
 
+    private static final Logger log = LoggerFactory.getLogger(ChatSession.class);
+
     @Id
     private String id;
     private String userId;
@@ -121,7 +125,7 @@ public class ChatSession {
             this.stats.incrementDocumentCount();
             this.restorationData.addDocumentForRestoration(documentId, fileName, fileType, textContent);
 
-            System.out.println("✅ Stored document with content: " + fileName + " (" + (textContent != null ? textContent.length() : 0) + " chars)");
+            log.debug("Stored document with content: {} ({} chars)", fileName, textContent != null ? textContent.length() : 0);
 
             // Update session title if it's a document session
             if ("DOCUMENT_ANALYSIS".equals(this.sessionType) && this.documentDetails.size() == 1) {
@@ -0,0 +1,79 @@
+package org.example.model;
+
+/**
+ * Outcome of processing one file from a (multi-file) upload request.
+ */
+public class FileUploadResult {
+
+    public enum Status { SUCCESS, FAILED, TIMED_OUT, REJECTED }
+
+    private String filename;
+    private Status status;
+    private String documentId;
+    private long fileSize;
+    private int contentLength;
+    private long durationMs;
+    private String error;
+    private String duplicateOf; // filename of the already stored document with identical content
+    private int charactersSaved;       // removed by ingest normalisation
+    private String truncationReason;   // set when only part of the text could be extracted in time/size limits
+    private int estimatedTokensSaved;
+
+    public FileUploadResult() {}
+
+    public FileUploadResult(String filename, long fileSize) {
+        this.filename = filename;
+        this.fileSize = fileSize;
+    }
+
+    public static FileUploadResult success(String filename, long fileSize, String documentId,
+                                           int contentLength, long durationMs) {
+        FileUploadResult result = new FileUploadResult(filename, fileSize);
+        result.status = Status.SUCCESS;
+        result.documentId = documentId;
+        result.contentLength = contentLength;
+        result.durationMs = durationMs;
+        return result;
+    }
+
+    public static FileUploadResult failure(String filename, long fileSize, Status status,
+                                           String error, long durationMs) {
+        FileUploadResult result = new FileUploadResult(filename, fileSize);
+        result.status = status;
+        result.error = error;
+        result.durationMs = durationMs;
+        return result;
+    }
+
+    public boolean isSuccess() { return status == Status.SUCCESS; }
+
+    // Same "name (reason)" format the upload response has always used for failedFiles
+    public String describeFailure() {
+        return filename + " (" + error + ")";
+    }
+
+    // Getters and Setters
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+    public int getContentLength() { return contentLength; }
+    public void setContentLength(int contentLength) { this.contentLength = contentLength; }
+    public long getDurationMs() { return durationMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public String getDuplicateOf() { return duplicateOf; }
+    public void setDuplicateOf(String duplicateOf) { this.duplicateOf = duplicateOf; }
+    public int getCharactersSaved() { return charactersSaved; }
+    public void setCharactersSaved(int charactersSaved) { this.charactersSaved = charactersSaved; }
+    public int getEstimatedTokensSaved() { return estimatedTokensSaved; }
+    public boolean isTruncated() { return truncationReason != null; }
+    public String getTruncationReason() { return truncationReason; }
+    public void setTruncationReason(String truncationReason) { this.truncationReason = truncationReason; }
+    public void setEstimatedTokensSaved(int estimatedTokensSaved) { this.estimatedTokensSaved = estimatedTokensSaved; }
+}
@@ -0,0 +1,110 @@
+package org.example.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Background extraction of one uploaded file. The raw upload lives in GridFS until the job finishes,
+ * so any instance can claim a PENDING job (or a RUNNING job whose lease ran out) and process it.
+ */
+@Document(collection = "ingestion_jobs")
+public class IngestionJob {
+
+    public enum Status { PENDING, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    private String id;
+    private String filename;
+    private String contentType;
+    private long fileSize;
+    private String uploadFileId; // GridFS id of the raw upload
+    private String sessionId;    // document partition the result is stored in
+
+    @Indexed
+    private Status status;
+    private int attempts;
+    private String workerId;
+    private LocalDateTime leaseExpiresAt;
+
+    // Progress (page counts are only known for PDFs)
+    private int pagesProcessed;
+    private int totalPages;
+    private int pagesReady; // pages already queryable while the job is still running
+
+    // Outcome
+    private String documentId;
+    private boolean duplicate;
+    private int contentLength;
+    private String truncationReason;
+    private String error;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+
+    // ✅ Default no-args constructor (REQUIRED by Spring Data/Jackson)
+    public IngestionJob() {}
+
+    public IngestionJob(String filename, String contentType, long fileSize, String uploadFileId) {
+        this.filename = filename;
+        this.contentType = contentType;
+        this.fileSize = fileSize;
+        this.uploadFileId = uploadFileId;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getFilename() { return filename; }
+    public void setFilename(String filename) { this.filename = filename; }
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+    public String getUploadFileId() { return uploadFileId; }
+    public void setUploadFileId(String uploadFileId) { this.uploadFileId = uploadFileId; }
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+    public String getWorkerId() { return workerId; }
+    public void setWorkerId(String workerId) { this.workerId = workerId; }
+    public LocalDateTime getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+    public int getPagesProcessed() { return pagesProcessed; }
+    public void setPagesProcessed(int pagesProcessed) { this.pagesProcessed = pagesProcessed; }
+    public int getTotalPages() { return totalPages; }
+    public void setTotalPages(int totalPages) { this.totalPages = totalPages; }
+    public int getPagesReady() { return pagesReady; }
+    public void setPagesReady(int pagesReady) { this.pagesReady = pagesReady; }
+    public String getDocumentId() { return documentId; }
+    public void setDocumentId(String documentId) { this.documentId = documentId; }
+    public boolean isDuplicate() { return duplicate; }
+    public void setDuplicate(boolean duplicate) { this.duplicate = duplicate; }
+    public int getContentLength() { return contentLength; }
+    public void setContentLength(int contentLength) { this.contentLength = contentLength; }
+    public String getTruncationReason() { return truncationReason; }
+    public void setTruncationReason(String truncationReason) { this.truncationReason = truncationReason; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,12 @@
+package org.example.repository;
+
+import org.example.model.IngestionJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IngestionJobRepository extends MongoRepository<IngestionJob, String> {
+
+    // Jobs waiting for a worker
+    long countByStatus(IngestionJob.Status status);
+}
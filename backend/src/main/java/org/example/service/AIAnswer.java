@@ -0,0 +1,8 @@
+package org.example.service;
+
+/**
+ * Result of an asynchronous AI request: the text shown to the user (an answer, a summary, or a message
+ * explaining why there is none) and whether it was served from the answer cache.
+ */
+public record AIAnswer(String text, boolean cached) {
+}
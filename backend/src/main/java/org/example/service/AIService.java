@@ -3,36 +3,73 @@ package org.example.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import okio.BufferedSource;
+import org.example.logging.LogMarkers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 @Service
 public class AIService {
 
+    private static final Logger log = LoggerFactory.getLogger(AIService.class);
+
+    public static final String SUMMARY_QUESTION = "GENERATE_COMPREHENSIVE_SUMMARY";
+
+    // Replies callGeminiAPIEnhanced gives instead of an answer; never cached
+    private static final String INVALID_REQUEST_REPLY = "Invalid request to Gemini API. Please check your configuration.";
+    private static final String ACCESS_DENIED_REPLY = "Access denied to Gemini API. Please check your API key permissions.";
+    private static final String RATE_LIMITED_REPLY = "Rate limit exceeded. Please try again in a few moments.";
+    private static final Set<String> GEMINI_ERROR_REPLIES = Set.of(INVALID_REQUEST_REPLY, ACCESS_DENIED_REPLY, RATE_LIMITED_REPLY);
+
     @Value("${gemini.api.key:}")
     private String geminiApiKey;
 
     @Value("${gemini.api.url}")
     private String geminiApiUrl;
 
+    // ✅ NEW: Streaming endpoint; derived from gemini.api.url when not set
+    @Value("${gemini.api.stream-url:}")
+    private String geminiStreamApiUrl;
+
     @Value("${ai.use.mock:false}")
     private boolean useMockAI;
 
+    // ✅ NEW: Gemini calls of the async API in flight at once; further calls wait in OkHttp's dispatcher queue
+    @Value("${ai.async.max-concurrent-calls:64}")
+    private int maxConcurrentAsyncCalls;
+
     private final OkHttpClient client;
     private final ObjectMapper objectMapper;
 
-    // ✅ ENHANCED: Much longer rate limiting with exponential backoff
-    private long lastRequestTime = 0;
-    private static final long MIN_REQUEST_INTERVAL_MS = 10000; // 10 seconds minimum
-    private static final long MAX_BACKOFF_MS = 300000; // 5 minutes maximum
-    private int consecutiveRateLimitErrors = 0;
-    private long lastSuccessfulRequestTime = 0;
+    // ✅ ENHANCED: Token buckets (global quota + per user) with exponential backoff, safe under concurrent requests
+    @Autowired
+    private GeminiRateLimiter rateLimiter;
+
+    @Autowired
+    private AnswerCache answerCache;
+
+    // ✅ NEW: Identical questions over the same documents that are being answered right now
+    private final Map<QuestionKey, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalescedRequests = new LongAdder();
 
     public AIService() {
         this.client = new OkHttpClient.Builder()
@@ -43,12 +80,117 @@ public class AIService {
         this.objectMapper = new ObjectMapper();
     }
 
+    @PostConstruct
+    void configureDispatcher() {
+        // OkHttp defaults to 5 calls per host, and every enqueued call goes to the same Gemini host
+        client.dispatcher().setMaxRequests(maxConcurrentAsyncCalls);
+        client.dispatcher().setMaxRequestsPerHost(maxConcurrentAsyncCalls);
+    }
+
     // ✅ ENHANCED: Smart rate limiting with exponential backoff
     public String askQuestionEnhanced(String question, String documentContext) {
-        System.out.println("AIService.askQuestionEnhanced called");
-        System.out.println("Question: " + question);
-        System.out.println("Document context length: " + (documentContext != null ? documentContext.length() : 0));
-        System.out.println("Consecutive rate limit errors: " + consecutiveRateLimitErrors);
+        return askQuestionEnhanced(question, documentContext, null);
+    }
+
+    /**
+     * ✅ NEW: userKey selects the caller's own rate-limit bucket (null = only the global quota applies).
+     * A cached answer for the key (same question over the same documents) is returned straight away unless
+     * bypassCache is set; concurrent calls with the same key share one Gemini call.
+     */
+    public String askQuestionEnhanced(String question, String documentContext, String userKey, QuestionKey key,
+                                      boolean bypassCache) {
+        String cached = bypassCache ? null : answerCache.get(key);
+        if (cached != null) {
+            log.debug("Answer cache hit");
+            return cached;
+        }
+        return singleFlight(key, () -> questionEarlyReply(question, documentContext, userKey),
+                () -> geminiAnswer(question, documentContext, key, null));
+    }
+
+    public String askQuestionEnhanced(String question, String documentContext, String userKey) {
+        return answerQuestion(question, documentContext, userKey, null, null);
+    }
+
+    /**
+     * ✅ NEW: Non-blocking askQuestionEnhanced. The Gemini call is queued on OkHttp's dispatcher and the future
+     * completes on its thread, so no caller thread is held while the answer is generated.
+     */
+    public CompletableFuture<AIAnswer> askQuestionAsync(String question, String documentContext, String userKey,
+                                                        QuestionKey key, boolean bypassCache) {
+        String cached = bypassCache ? null : answerCache.get(key);
+        if (cached != null) {
+            log.debug("Answer cache hit");
+            return CompletableFuture.completedFuture(new AIAnswer(cached, true));
+        }
+        return singleFlightAsync(key, () -> questionEarlyReply(question, documentContext, userKey),
+                        () -> geminiAnswerAsync(question, documentContext, key))
+                .thenApply(answer -> new AIAnswer(answer, false));
+    }
+
+    /**
+     * ✅ NEW: Same as askQuestionEnhanced, but the answer is passed to the listener while Gemini generates it.
+     * Cached answers and messages that replace an answer are passed in one piece. Not coalesced with other
+     * requests, since a joined caller would miss the text streamed before it arrived.
+     */
+    public String streamQuestionEnhanced(String question, String documentContext, String userKey, QuestionKey key,
+                                         boolean bypassCache, AnswerStreamListener listener) {
+        String cached = bypassCache ? null : answerCache.get(key);
+        if (cached != null) {
+            listener.onText(cached);
+            return cached;
+        }
+
+        StringBuilder streamed = new StringBuilder();
+        String result = answerQuestion(question, documentContext, userKey, key, new AnswerStreamListener() {
+            @Override
+            public void onText(String text) {
+                streamed.append(text);
+                listener.onText(text);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return listener.isCancelled();
+            }
+        });
+        if (streamed.isEmpty()) {
+            listener.onText(result);
+        } else if (!result.contentEquals(streamed)) {
+            listener.onText("\n\n" + result); // the stream broke off or Gemini reported a problem at the end
+        }
+        return result;
+    }
+
+    private String answerQuestion(String question, String documentContext, String userKey, QuestionKey key,
+                                  AnswerStreamListener listener) {
+        String earlyReply = questionEarlyReply(question, documentContext, userKey);
+        return earlyReply != null ? earlyReply : geminiAnswer(question, documentContext, key, listener);
+    }
+
+    // Asks Gemini once the caller has passed questionEarlyReply
+    private String geminiAnswer(String question, String documentContext, QuestionKey key, AnswerStreamListener listener) {
+        try {
+            String result = listener != null
+                    ? streamGeminiAPI(question, documentContext, listener)
+                    : callGeminiAPIEnhanced(question, documentContext);
+            return acceptAnswer(result, key, listener != null && listener.isCancelled());
+        } catch (Exception e) {
+            return answerFailed(e);
+        }
+    }
+
+    // ✅ NEW: Asynchronous counterpart of geminiAnswer; no thread waits while Gemini generates the answer
+    private CompletableFuture<String> geminiAnswerAsync(String question, String documentContext, QuestionKey key) {
+        return callGeminiAPIAsync(question, documentContext)
+                .handle((result, error) -> error == null ? acceptAnswer(result, key, false) : answerFailed(error));
+    }
+
+    // A reply given without calling Gemini (mock mode, not configured, no question, cooling down), or null to go ahead
+    private String questionEarlyReply(String question, String documentContext, String userKey) {
+        log.info(LogMarkers.VERBOSE, "askQuestionEnhanced: question {} chars, context {} chars, consecutive rate limit errors {}",
+                question != null ? question.length() : 0, documentContext != null ? documentContext.length() : 0,
+                rateLimiter.getConsecutiveFailures());
 
         if (useMockAI) {
             return generateEnhancedMockResponse(question, documentContext);
@@ -62,22 +204,11 @@ public class AIService {
             return "Please provide a valid question.";
         }
 
-        // ✅ ENHANCED: Exponential backoff calculation
-        long currentTime = System.currentTimeMillis();
-        long requiredDelay = MIN_REQUEST_INTERVAL_MS;
-
-        if (consecutiveRateLimitErrors > 0) {
-            // Exponential backoff: 10s, 20s, 40s, 80s, 160s, max 5min
-            long backoffMultiplier = Math.min((1L << consecutiveRateLimitErrors), 30);
-            requiredDelay = Math.min(MIN_REQUEST_INTERVAL_MS * backoffMultiplier, MAX_BACKOFF_MS);
-            System.out.println("⏳ Exponential backoff active: " + requiredDelay + "ms delay");
-        }
-
-        // ✅ ENFORCE: Strict rate limiting with helpful messages
-        long timeSinceLastRequest = currentTime - lastRequestTime;
-        if (timeSinceLastRequest < requiredDelay) {
-            long waitTime = requiredDelay - timeSinceLastRequest;
-            System.out.println("⏳ Rate limiting: waiting " + waitTime + "ms");
+        // ✅ ENFORCE: Global quota and per-user buckets, with helpful messages
+        long waitTime = rateLimiter.tryAcquire(userKey);
+        if (waitTime > 0) {
+            log.info("Rate limited: next AI request allowed in {}ms", waitTime);
+            long waitSeconds = Math.max(1, (waitTime + 999) / 1000);
 
             return String.format(
                     "⏳ **AI Cooling Down** (%d seconds remaining)\n\n" +
@@ -86,63 +217,111 @@ public class AIService {
                             "**📊 Your question:** \"%s\"\n" +
                             "**📄 Documents ready:** All documents are loaded and searchable\n\n" +
                             "**💡 Tip:** Search function provides instant results while AI service recovers.",
-                    waitTime / 1000,
-                    waitTime / 1000,
+                    waitSeconds,
+                    waitSeconds,
                     question
             );
         }
+        return null;
+    }
 
-        try {
-            String result = callGeminiAPIEnhanced(question, documentContext);
-            lastRequestTime = System.currentTimeMillis();
-
-            // ✅ CHECK: Did we get rate limited in the response?
-            if (result.contains("Rate limit exceeded") || result.contains("high demand") ||
-                    result.contains("too many requests") || result.contains("quota exceeded")) {
-                consecutiveRateLimitErrors++;
-                System.out.println("❌ Rate limit detected in response. Count: " + consecutiveRateLimitErrors);
-
-                long nextAvailableMinutes = (MIN_REQUEST_INTERVAL_MS * Math.min((1L << consecutiveRateLimitErrors), 30)) / 60000;
-
-                return String.format(
-                        "⏳ **Gemini API Temporarily Overloaded** (Attempt #%d)\n\n" +
-                                "Google's AI service is experiencing high demand right now.\n\n" +
-                                "**🔍 Smart Search Alternative:**\n" +
-                                "While waiting for AI service to recover, use the search function for immediate, comprehensive results from your documents.\n\n" +
-                                "**⏰ Next AI attempt available in:** %d minutes\n" +
-                                "**📄 Your documents are fully searchable right now!**\n\n" +
-                                "**💡 Search provides:** Instant results, content highlighting, and comprehensive document analysis.",
-                        consecutiveRateLimitErrors,
-                        Math.max(nextAvailableMinutes, 1)
-                );
-            }
-
-            // ✅ SUCCESS: Reset error counter
-            consecutiveRateLimitErrors = 0;
-            lastSuccessfulRequestTime = System.currentTimeMillis();
-            System.out.println("✅ Successful AI response received, resetting backoff");
-            return result;
+    // Gemini's reply to a question: overload replies start the backoff, anything else resets it
+    private String acceptAnswer(String result, QuestionKey key, boolean partial) {
+        if (result.contains("Rate limit exceeded") || result.contains("high demand") ||
+                result.contains("too many requests") || result.contains("quota exceeded")) {
+            int failures = rateLimiter.recordFailure();
+            log.warn("Rate limit detected in Gemini response, consecutive count {}", failures);
 
-        } catch (Exception e) {
-            System.err.println("Gemini API error: " + e.getMessage());
-            e.printStackTrace();
-            consecutiveRateLimitErrors++;
+            long nextAvailableMinutes = rateLimiter.getBackoffMillis(failures) / 60000;
 
             return String.format(
-                    "❌ **AI Service Error** (Attempt #%d)\n\n" +
-                            "**Technical issue:** %s\n\n" +
-                            "**🔍 Search is fully operational** - try using search for immediate results from your documents.\n\n" +
-                            "**📄 All your documents are accessible** through the search function while AI service recovers.",
-                    consecutiveRateLimitErrors,
-                    e.getMessage()
+                    "⏳ **Gemini API Temporarily Overloaded** (Attempt #%d)\n\n" +
+                            "Google's AI service is experiencing high demand right now.\n\n" +
+                            "**🔍 Smart Search Alternative:**\n" +
+                            "While waiting for AI service to recover, use the search function for immediate, comprehensive results from your documents.\n\n" +
+                            "**⏰ Next AI attempt available in:** %d minutes\n" +
+                            "**📄 Your documents are fully searchable right now!**\n\n" +
+                            "**💡 Search provides:** Instant results, content highlighting, and comprehensive document analysis.",
+                    failures,
+                    Math.max(nextAvailableMinutes, 1)
             );
         }
+
+        // ✅ SUCCESS: Reset error counter
+        rateLimiter.recordSuccess();
+        log.debug("Successful AI response received, resetting backoff");
+        if (!partial && !GEMINI_ERROR_REPLIES.contains(result)) {
+            answerCache.put(key, result);
+        }
+        return result;
+    }
+
+    private String answerFailed(Throwable e) {
+        log.error("Gemini API error: {}", e.getMessage(), e);
+        int failures = rateLimiter.recordFailure();
+
+        return String.format(
+                "❌ **AI Service Error** (Attempt #%d)\n\n" +
+                        "**Technical issue:** %s\n\n" +
+                        "**🔍 Search is fully operational** - try using search for immediate results from your documents.\n\n" +
+                        "**📄 All your documents are accessible** through the search function while AI service recovers.",
+                failures,
+                e.getMessage()
+        );
     }
 
     // ✅ ENHANCED: Summary generation with same rate limiting
     public String generateSummaryEnhanced(String documentContent) {
-        System.out.println("AIService.generateSummaryEnhanced called");
-        System.out.println("Document content length: " + (documentContent != null ? documentContent.length() : 0));
+        return generateSummaryEnhanced(documentContent, null);
+    }
+
+    public String generateSummaryEnhanced(String documentContent, String userKey, QuestionKey key, boolean bypassCache) {
+        String cached = bypassCache ? null : answerCache.get(key);
+        if (cached != null) {
+            log.debug("Summary cache hit");
+            return cached;
+        }
+        return singleFlight(key, () -> summaryEarlyReply(documentContent, userKey), () -> geminiSummary(documentContent, key));
+    }
+
+    public String generateSummaryEnhanced(String documentContent, String userKey) {
+        return summarize(documentContent, userKey, null);
+    }
+
+    // ✅ NEW: Non-blocking generateSummaryEnhanced
+    public CompletableFuture<AIAnswer> generateSummaryAsync(String documentContent, String userKey, QuestionKey key,
+                                                            boolean bypassCache) {
+        String cached = bypassCache ? null : answerCache.get(key);
+        if (cached != null) {
+            log.debug("Summary cache hit");
+            return CompletableFuture.completedFuture(new AIAnswer(cached, true));
+        }
+        return singleFlightAsync(key, () -> summaryEarlyReply(documentContent, userKey),
+                        () -> geminiSummaryAsync(documentContent, key))
+                .thenApply(summary -> new AIAnswer(summary, false));
+    }
+
+    private String summarize(String documentContent, String userKey, QuestionKey key) {
+        String earlyReply = summaryEarlyReply(documentContent, userKey);
+        return earlyReply != null ? earlyReply : geminiSummary(documentContent, key);
+    }
+
+    private String geminiSummary(String documentContent, QuestionKey key) {
+        try {
+            return acceptSummary(callGeminiAPIEnhanced(SUMMARY_QUESTION, documentContent), key);
+        } catch (Exception e) {
+            return summaryFailed(e);
+        }
+    }
+
+    // ✅ NEW: Asynchronous counterpart of geminiSummary
+    private CompletableFuture<String> geminiSummaryAsync(String documentContent, QuestionKey key) {
+        return callGeminiAPIAsync(SUMMARY_QUESTION, documentContent)
+                .handle((result, error) -> error == null ? acceptSummary(result, key) : summaryFailed(error));
+    }
+
+    private String summaryEarlyReply(String documentContent, String userKey) {
+        log.info(LogMarkers.VERBOSE, "generateSummaryEnhanced: content {} chars", documentContent != null ? documentContent.length() : 0);
 
         if (useMockAI) {
             return generateMockSummary(documentContent);
@@ -153,50 +332,153 @@ public class AIService {
         }
 
         // Apply same rate limiting logic as questions
-        long currentTime = System.currentTimeMillis();
-        long timeSinceLastRequest = currentTime - lastRequestTime;
-        long requiredDelay = MIN_REQUEST_INTERVAL_MS;
-
-        if (consecutiveRateLimitErrors > 0) {
-            long backoffMultiplier = Math.min((1L << consecutiveRateLimitErrors), 30);
-            requiredDelay = Math.min(MIN_REQUEST_INTERVAL_MS * backoffMultiplier, MAX_BACKOFF_MS);
-        }
-
-        if (timeSinceLastRequest < requiredDelay) {
-            long waitTime = requiredDelay - timeSinceLastRequest;
+        long waitTime = rateLimiter.tryAcquire(userKey);
+        if (waitTime > 0) {
             return String.format(
                     "⏳ **Summary Generation Delayed**\n\n" +
                             "Please wait **%d seconds** before requesting a summary.\n\n" +
                             "**🔍 Alternative:** Use search to explore specific topics in your documents right now!",
-                    waitTime / 1000
+                    Math.max(1, (waitTime + 999) / 1000)
             );
         }
+        return null;
+    }
 
-        try {
-            String result = callGeminiAPIEnhanced("GENERATE_COMPREHENSIVE_SUMMARY", documentContent);
-            lastRequestTime = System.currentTimeMillis();
+    private String acceptSummary(String result, QuestionKey key) {
+        if (result.contains("Rate limit exceeded")) {
+            rateLimiter.recordFailure();
+            return "⏳ **AI Summary Temporarily Unavailable**\n\nUse search to explore your documents while AI service recovers.";
+        }
 
-            if (result.contains("Rate limit exceeded")) {
-                consecutiveRateLimitErrors++;
-                return "⏳ **AI Summary Temporarily Unavailable**\n\nUse search to explore your documents while AI service recovers.";
+        rateLimiter.recordSuccess();
+        if (!GEMINI_ERROR_REPLIES.contains(result)) {
+            answerCache.put(key, result);
+        }
+        return result;
+    }
+
+    private String summaryFailed(Throwable e) {
+        log.error("Gemini API error while summarising: {}", e.getMessage(), e);
+        rateLimiter.recordFailure();
+        return "Sorry, I encountered an error while generating the summary: " + e.getMessage();
+    }
+
+    /**
+     * ✅ NEW: The first caller for a key runs the call; callers arriving while it runs wait for the same result
+     * instead of spending quota on an identical request. Nothing is kept once the call completes.
+     * Every caller's own checks (earlyReply: configuration, rate limits) run before it can call Gemini, so only a
+     * Gemini result is shared: when the leading caller is turned away, waiting callers go through their own checks.
+     */
+    private String singleFlight(QuestionKey key, Supplier<String> earlyReply, Supplier<String> call) {
+        if (key == null) {
+            String early = earlyReply.get();
+            return early != null ? early : call.get();
+        }
+        while (true) {
+            CompletableFuture<String> flight = new CompletableFuture<>();
+            CompletableFuture<String> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return leadFlight(key, flight, earlyReply, call);
+            }
+            String shared;
+            try {
+                shared = existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
             }
+            if (shared != null) {
+                coalescedRequests.increment();
+                log.info("Joined an identical in-flight AI request");
+                return shared;
+            }
+        }
+    }
 
-            consecutiveRateLimitErrors = 0;
+    private String leadFlight(QuestionKey key, CompletableFuture<String> flight, Supplier<String> earlyReply,
+                              Supplier<String> call) {
+        // The flight leaves the map before it completes, so a caller sent back to its own checks starts a new one
+        try {
+            String early = earlyReply.get();
+            if (early != null) {
+                inFlight.remove(key, flight);
+                flight.complete(null);
+                return early;
+            }
+            String result = call.get();
+            inFlight.remove(key, flight);
+            flight.complete(result);
             return result;
-        } catch (Exception e) {
-            System.err.println("Gemini API error: " + e.getMessage());
-            e.printStackTrace();
-            consecutiveRateLimitErrors++;
-            return "Sorry, I encountered an error while generating the summary: " + e.getMessage();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    // Same as singleFlight for asynchronous calls; sync and async callers of one key share the same flight
+    private CompletableFuture<String> singleFlightAsync(QuestionKey key, Supplier<String> earlyReply,
+                                                        Supplier<CompletableFuture<String>> call) {
+        if (key == null) {
+            String early = earlyReply.get();
+            return early != null ? CompletableFuture.completedFuture(early) : call.get();
+        }
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return existing.thenCompose(shared -> {
+                if (shared == null) {
+                    return singleFlightAsync(key, earlyReply, call);
+                }
+                coalescedRequests.increment();
+                log.info("Joined an identical in-flight AI request");
+                return CompletableFuture.completedFuture(shared);
+            });
         }
+        CompletableFuture<String> result;
+        try {
+            String early = earlyReply.get();
+            if (early != null) {
+                inFlight.remove(key, flight);
+                flight.complete(null);
+                return CompletableFuture.completedFuture(early);
+            }
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        result.whenComplete((answer, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(answer);
+            }
+        });
+        return flight.copy(); // no caller can complete or cancel the shared flight for the others
+    }
+
+    public Map<String, Object> getRequestStats() {
+        return Map.of(
+                "inFlight", inFlight.size(),
+                "coalescedRequests", coalescedRequests.sum(),
+                "answerCache", answerCache.getStats()
+        );
+    }
+
+    // ✅ NEW: Only the cached answers over this document set; other sessions' answers stay
+    public void clearAnswerCache(String documentFingerprint) {
+        answerCache.clear(documentFingerprint);
     }
 
     // ✅ Your existing callGeminiAPIEnhanced method remains the same
-    private String callGeminiAPIEnhanced(String question, String documentContext) throws Exception {
+    // The generateContent / streamGenerateContent request body for a question (or the summary) over the documents
+    private String buildGeminiRequestBody(String question, String documentContext) throws Exception {
         // Enhanced prompt for better multi-document analysis
         String prompt;
 
-        if (question.equals("GENERATE_COMPREHENSIVE_SUMMARY") || question.toLowerCase().contains("summary")) {
+        if (question.equals(SUMMARY_QUESTION) || question.toLowerCase().contains("summary")) {
             prompt = String.format("""
                     You are an expert document analyzer tasked with providing comprehensive summaries.
                     
@@ -257,108 +539,211 @@ public class AIService {
         generationConfig.put("maxOutputTokens", 4096);
         requestBody.put("generationConfig", generationConfig);
 
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
-        System.out.println("Sending enhanced request to Gemini API...");
+        return objectMapper.writeValueAsString(requestBody);
+    }
 
-        RequestBody body = RequestBody.create(
-                MediaType.parse("application/json"),
-                jsonBody
-        );
+    private String callGeminiAPIEnhanced(String question, String documentContext) throws Exception {
+        String jsonBody = buildGeminiRequestBody(question, documentContext);
+        long requestStart = System.nanoTime();
+
+        try (Response response = client.newCall(geminiRequest(geminiApiUrl + "?key=" + geminiApiKey, jsonBody)).execute()) {
+            return readGeminiResponse(response, requestStart, jsonBody.length());
+        }
+    }
+
+    /**
+     * ✅ NEW: callGeminiAPIEnhanced on OkHttp's dispatcher. The future completes with the same result (or exception)
+     * on the dispatcher thread, under the caller's MDC. The call runs to completion (or OkHttp's timeouts) even
+     * if the client goes away: a coalesced flight may still have other callers waiting for it.
+     */
+    private CompletableFuture<String> callGeminiAPIAsync(String question, String documentContext) {
+        String jsonBody;
+        try {
+            jsonBody = buildGeminiRequestBody(question, documentContext);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long requestStart = System.nanoTime();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        client.newCall(geminiRequest(geminiApiUrl + "?key=" + geminiApiKey, jsonBody)).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                withMdc(mdc, () -> result.completeExceptionally(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                withMdc(mdc, () -> {
+                    try (response) {
+                        result.complete(readGeminiResponse(response, requestStart, jsonBody.length()));
+                    } catch (Exception e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+        });
+        return result;
+    }
 
-        String url = geminiApiUrl + "?key=" + geminiApiKey;
+    private static void withMdc(Map<String, String> context, Runnable action) {
+        if (context != null) {
+            MDC.setContextMap(context);
+        }
+        try {
+            action.run();
+        } finally {
+            MDC.clear();
+        }
+    }
 
-        Request request = new Request.Builder()
+    private Request geminiRequest(String url, String jsonBody) {
+        return new Request.Builder()
                 .url(url)
                 .addHeader("Content-Type", "application/json")
-                .post(body)
+                .post(RequestBody.create(MediaType.parse("application/json"), jsonBody))
                 .build();
+    }
+
+    private String readGeminiResponse(Response response, long requestStart, int requestBytes) throws Exception {
+        log.info("Gemini API responded {} in {}ms (request {} bytes)", response.code(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart), requestBytes);
+
+        if (!response.isSuccessful()) {
+            String errorBody = response.body() != null ? response.body().string() : "No error details";
+            log.warn("Gemini API error response {}: {}", response.code(), errorBody);
+
+            switch (response.code()) {
+                case 400:
+                    return INVALID_REQUEST_REPLY;
+                case 403:
+                    return ACCESS_DENIED_REPLY;
+                case 429:
+                    return RATE_LIMITED_REPLY;
+                default:
+                    throw new Exception("Gemini API request failed: HTTP " + response.code() + " - " + response.message());
+            }
+        }
+
+        ResponseBody responseBody = response.body();
+        if (responseBody == null) {
+            throw new Exception("Empty response from Gemini API");
+        }
+
+        String responseBodyString = responseBody.string();
+        log.debug("Gemini API response received ({} chars)", responseBodyString.length());
+
+        // Parse response
+        JsonNode responseJson = objectMapper.readTree(responseBodyString);
+
+        JsonNode candidatesNode = responseJson.get("candidates");
+        if (candidatesNode != null && candidatesNode.isArray() && candidatesNode.size() > 0) {
+            JsonNode firstCandidate = candidatesNode.get(0);
+            JsonNode responseContentNode = firstCandidate.get("content");
+            if (responseContentNode != null) {
+                JsonNode responsePartsNode = responseContentNode.get("parts");
+                if (responsePartsNode != null && responsePartsNode.isArray() && responsePartsNode.size() > 0) {
+                    JsonNode firstPart = responsePartsNode.get(0);
+                    JsonNode textNode = firstPart.get("text");
+                    if (textNode != null && !textNode.asText().trim().isEmpty()) {
+                        String result = textNode.asText().trim();
+                        log.debug("Extracted AI response ({} chars)", result.length());
+                        return result;
+                    }
+                }
+            }
+        }
+
+        if (responseJson.has("error")) {
+            JsonNode errorNode = responseJson.get("error");
+            String errorMessage = errorNode.has("message") ? errorNode.get("message").asText() : "Unknown error";
+            throw new Exception("Gemini API returned error: " + errorMessage);
+        }
+
+        throw new Exception("No valid response received from Gemini API. Response: " + responseBodyString);
+    }
 
-        try (Response response = client.newCall(request).execute()) {
-            System.out.println("Gemini API response code: " + response.code());
+    /**
+     * ✅ NEW: Calls streamGenerateContent with alt=sse and hands each text delta to the listener as it arrives.
+     * Returns the whole answer, or one of the error replies when Gemini refuses the request.
+     */
+    private String streamGeminiAPI(String question, String documentContext, AnswerStreamListener listener) throws Exception {
+        String jsonBody = buildGeminiRequestBody(question, documentContext);
+        long requestStart = System.nanoTime();
 
+        try (Response response = client.newCall(geminiRequest(geminiStreamUrl() + "?alt=sse&key=" + geminiApiKey, jsonBody)).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "No error details";
-                System.err.println("Gemini API error response: " + errorBody);
+                log.warn("Gemini API error response {}: {}", response.code(), errorBody);
 
                 switch (response.code()) {
                     case 400:
-                        return "Invalid request to Gemini API. Please check your configuration.";
+                        return INVALID_REQUEST_REPLY;
                     case 403:
-                        return "Access denied to Gemini API. Please check your API key permissions.";
+                        return ACCESS_DENIED_REPLY;
                     case 429:
-                        return "Rate limit exceeded. Please try again in a few moments.";
+                        return RATE_LIMITED_REPLY;
                     default:
                         throw new Exception("Gemini API request failed: HTTP " + response.code() + " - " + response.message());
                 }
             }
-
             ResponseBody responseBody = response.body();
             if (responseBody == null) {
                 throw new Exception("Empty response from Gemini API");
             }
 
-            String responseBodyString = responseBody.string();
-            System.out.println("Gemini API response received (length: " + responseBodyString.length() + ")");
-
-            // Parse response
-            JsonNode responseJson = objectMapper.readTree(responseBodyString);
-
-            JsonNode candidatesNode = responseJson.get("candidates");
-            if (candidatesNode != null && candidatesNode.isArray() && candidatesNode.size() > 0) {
-                JsonNode firstCandidate = candidatesNode.get(0);
-                JsonNode responseContentNode = firstCandidate.get("content");
-                if (responseContentNode != null) {
-                    JsonNode responsePartsNode = responseContentNode.get("parts");
-                    if (responsePartsNode != null && responsePartsNode.isArray() && responsePartsNode.size() > 0) {
-                        JsonNode firstPart = responsePartsNode.get(0);
-                        JsonNode textNode = firstPart.get("text");
-                        if (textNode != null && !textNode.asText().trim().isEmpty()) {
-                            String result = textNode.asText().trim();
-                            System.out.println("Successfully extracted enhanced AI response (length: " + result.length() + ")");
-                            return result;
-                        }
+            StringBuilder answer = new StringBuilder();
+            BufferedSource source = responseBody.source();
+            String line;
+            while (!listener.isCancelled() && (line = source.readUtf8Line()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue; // blank separators between events
+                }
+                JsonNode chunk = objectMapper.readTree(line.substring(5));
+                if (chunk.has("error")) {
+                    JsonNode errorNode = chunk.get("error");
+                    throw new Exception("Gemini API returned error: " +
+                            (errorNode.has("message") ? errorNode.get("message").asText() : "Unknown error"));
+                }
+                for (JsonNode part : chunk.path("candidates").path(0).path("content").path("parts")) {
+                    String text = part.path("text").asText("");
+                    if (text.isEmpty()) {
+                        continue;
+                    }
+                    if (answer.isEmpty()) {
+                        log.info("Gemini stream first text after {}ms (request {} bytes)",
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart), jsonBody.length());
                     }
+                    answer.append(text);
+                    listener.onText(text);
                 }
             }
+            log.info("Gemini stream {} after {}ms: {} chars", listener.isCancelled() ? "cancelled" : "completed",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - requestStart), answer.length());
 
-            if (responseJson.has("error")) {
-                JsonNode errorNode = responseJson.get("error");
-                String errorMessage = errorNode.has("message") ? errorNode.get("message").asText() : "Unknown error";
-                throw new Exception("Gemini API returned error: " + errorMessage);
+            if (answer.isEmpty()) {
+                throw new Exception("No valid response received from Gemini API stream");
             }
+            return answer.toString();
+        }
+    }
 
-            throw new Exception("No valid response received from Gemini API. Response: " + responseBodyString);
+    private String geminiStreamUrl() {
+        if (geminiStreamApiUrl != null && !geminiStreamApiUrl.isBlank()) {
+            return geminiStreamApiUrl;
         }
+        return geminiApiUrl.replace(":generateContent", ":streamGenerateContent");
     }
 
     // ✅ NEW: Add method to check if AI service is currently available
     public boolean isAIAvailable() {
-        long currentTime = System.currentTimeMillis();
-        long timeSinceLastRequest = currentTime - lastRequestTime;
-        long requiredDelay = MIN_REQUEST_INTERVAL_MS;
-
-        if (consecutiveRateLimitErrors > 0) {
-            long backoffMultiplier = Math.min((1L << consecutiveRateLimitErrors), 30);
-            requiredDelay = Math.min(MIN_REQUEST_INTERVAL_MS * backoffMultiplier, MAX_BACKOFF_MS);
-        }
-
-        return timeSinceLastRequest >= requiredDelay;
+        return rateLimiter.millisUntilAvailable() == 0;
     }
 
     // ✅ NEW: Get time until AI becomes available (in seconds)
     public long getSecondsUntilAIAvailable() {
-        if (isAIAvailable()) return 0;
-
-        long currentTime = System.currentTimeMillis();
-        long timeSinceLastRequest = currentTime - lastRequestTime;
-        long requiredDelay = MIN_REQUEST_INTERVAL_MS;
-
-        if (consecutiveRateLimitErrors > 0) {
-            long backoffMultiplier = Math.min((1L << consecutiveRateLimitErrors), 30);
-            requiredDelay = Math.min(MIN_REQUEST_INTERVAL_MS * backoffMultiplier, MAX_BACKOFF_MS);
-        }
-
-        return (requiredDelay - timeSinceLastRequest) / 1000;
+        return rateLimiter.millisUntilAvailable() / 1000;
     }
 
     // Legacy methods for backward compatibility
@@ -383,10 +768,8 @@ public class AIService {
     }
 
     public void resetState() {
-        lastRequestTime = 0;
-        consecutiveRateLimitErrors = 0;
-        lastSuccessfulRequestTime = 0;
-        System.out.println("AI service state reset successfully");
+        rateLimiter.clearBackoff(); // ✅ NEW: never refills the shared or per-user rate limits
+        log.info("AI service state reset");
     }
 
     public boolean isConfigured() {
@@ -395,9 +778,7 @@ public class AIService {
 
     public String askQuestionWithContext(String question, String documentContent, Map<String, Object> context) {
         try {
-            System.out.println("=== AI SERVICE: Processing question with context ===");
-            System.out.println("Question: " + question);
-            System.out.println("Context keys: " + (context != null ? context.keySet() : "none"));
+            log.info(LogMarkers.VERBOSE, "askQuestionWithContext: context keys {}", context != null ? context.keySet() : "none");
 
             // ✅ DECLARE: aiRequestContext variable before using it
             Map<String, Object> aiRequestContext = new HashMap<>();
@@ -452,12 +833,10 @@ public class AIService {
             // ✅ CALL: Your existing AI method with the enhanced prompt
             String response = askQuestionEnhanced(question, fullPrompt);
 
-            System.out.println("✅ AI response generated successfully with context");
             return response;
 
         } catch (Exception e) {
-            System.err.println("❌ Error in askQuestionWithContext: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error in askQuestionWithContext, retrying without context: {}", e.getMessage(), e);
 
             // ✅ FALLBACK: Use existing method if context method fails
             try {
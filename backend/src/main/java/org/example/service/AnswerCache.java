@@ -0,0 +1,102 @@
+package org.example.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory cache of AI answers keyed by {@link QuestionKey} (normalised question + document-set
+ * fingerprint), so a repeated question over unchanged documents is answered without calling Gemini.
+ * Entries expire after the TTL and the least recently used ones are evicted beyond max-entries.
+ * Only successful Gemini answers are stored; rate-limit and error messages never are.
+ */
+@Service
+public class AnswerCache {
+
+    @Value("${ai.answer-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.answer-cache.ttl-ms:3600000}")
+    private long ttlMs;
+
+    @Value("${ai.answer-cache.max-entries:1000}")
+    private int maxEntries;
+
+    // key -> answer, in access order (eldest = least recently used)
+    private final LinkedHashMap<QuestionKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<QuestionKey, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    };
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public String get(QuestionKey key) {
+        if (!enabled || key == null) {
+            return null;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos - System.nanoTime() > 0) {
+                hits.increment();
+                return entry.answer;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(QuestionKey key, String answer) {
+        if (!enabled || key == null || answer == null) {
+            return;
+        }
+        Entry entry = new Entry(answer, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs));
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Drops the answers given over one document set. A session can only be served entries with its own
+     * fingerprint, so this clears everything the session could read and nothing any other document set uses.
+     */
+    public void clear(String documentFingerprint) {
+        if (documentFingerprint == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> documentFingerprint.equals(key.documentFingerprint()));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return Map.of(
+                "enabled", enabled,
+                "entries", size,
+                "maxEntries", maxEntries,
+                "ttlMs", ttlMs,
+                "hits", hits.sum(),
+                "misses", misses.sum(),
+                "evictions", evictions.sum()
+        );
+    }
+
+    private record Entry(String answer, long expiresAtNanos) {}
+}
@@ -0,0 +1,15 @@
+package org.example.service;
+
+/**
+ * Receives an AI answer as it is generated. Text arrives in the order Gemini produces it; messages that
+ * replace an answer (cooling down, errors) and cached answers arrive as a single piece.
+ */
+public interface AnswerStreamListener {
+
+    void onText(String text);
+
+    // Polled between chunks; once true (e.g. the client went away) the Gemini stream is closed
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,366 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Chunked, resumable uploads for files larger than the multipart limit. Each upload gets a directory
+ * holding the data file and a small manifest; chunks are streamed from the request body straight into
+ * their slot of the data file through a FileChannel, so neither a chunk nor the file is held in heap.
+ * Received chunks are recorded in the manifest, so a client can ask which chunks are missing and
+ * resume after a dropped connection (or after this instance restarts).
+ */
+@Service
+@Lazy(false) // expired uploads are swept on a schedule
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final String DATA_FILE = "data.part";
+    private static final String MANIFEST_FILE = "manifest.properties";
+    private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${document.chunked-upload.dir:${java.io.tmpdir}/chunked-uploads}")
+    private String uploadDir;
+
+    @Value("${document.chunked-upload.default-chunk-size:4194304}")
+    private int defaultChunkSize;
+
+    @Value("${document.chunked-upload.max-chunk-size:5242880}")
+    private int maxChunkSize;
+
+    @Value("${document.chunked-upload.max-file-size:104857600}")
+    private long maxFileSize;
+
+    @Value("${document.chunked-upload.expiry-ms:86400000}")
+    private long expiryMs;
+
+    // Uploads touched by this instance; anything else is loaded from its manifest on first use
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    public ChunkedUpload init(String filename, String contentType, long fileSize, Integer requestedChunkSize,
+                              String fileSha256) throws IOException {
+        if (filename == null || filename.isBlank()) {
+            throw new IllegalArgumentException("filename is required");
+        }
+        if (fileSize <= 0) {
+            throw new IllegalArgumentException("fileSize must be positive");
+        }
+        if (fileSize > maxFileSize) {
+            throw new IllegalArgumentException("File too large: " + fileSize + " bytes (limit " + maxFileSize + ")");
+        }
+        int chunkSize = requestedChunkSize != null ? requestedChunkSize : defaultChunkSize;
+        if (chunkSize <= 0 || chunkSize > maxChunkSize) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and " + maxChunkSize + " bytes");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        Path dir = Files.createDirectories(Path.of(uploadDir, uploadId));
+        // Chunks are written at their own offsets, in whatever order they arrive
+        Files.createFile(dir.resolve(DATA_FILE));
+
+        ChunkedUpload upload = new ChunkedUpload(uploadId, dir, filename, contentType, fileSize, chunkSize,
+                fileSha256 != null ? fileSha256.toLowerCase() : null, System.currentTimeMillis(), new BitSet());
+        upload.saveManifest();
+        uploads.put(uploadId, upload);
+
+        log.info("Chunked upload started: {} ({}, {} bytes in {} chunks)", uploadId, filename, fileSize, upload.getTotalChunks());
+        return upload;
+    }
+
+    public ChunkedUpload getUpload(String uploadId) throws IOException {
+        if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+            throw new NoSuchElementException("Unknown upload: " + uploadId);
+        }
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload != null) {
+            return upload;
+        }
+
+        Path dir = Path.of(uploadDir, uploadId);
+        if (!Files.isRegularFile(dir.resolve(MANIFEST_FILE))) {
+            throw new NoSuchElementException("Unknown upload: " + uploadId);
+        }
+        return uploads.computeIfAbsent(uploadId, id -> ChunkedUpload.load(dir));
+    }
+
+    /**
+     * Stream one chunk from the request body into its slot. The SHA-256 sent by the client must match
+     * what arrived; otherwise the chunk stays missing and can simply be sent again. Re-sending a chunk
+     * that was already received is a no-op, which makes retries after a lost response safe.
+     *
+     * @return true if the chunk was written, false if it had already been received
+     */
+    public boolean writeChunk(String uploadId, int index, String expectedSha256, InputStream body) throws IOException {
+        ChunkedUpload upload = getUpload(uploadId);
+        if (index < 0 || index >= upload.getTotalChunks()) {
+            throw new IllegalArgumentException("Chunk index out of range: " + index + " (0.." + (upload.getTotalChunks() - 1) + ")");
+        }
+        if (expectedSha256 == null || expectedSha256.isBlank()) {
+            throw new IllegalArgumentException("X-Chunk-SHA256 header is required");
+        }
+        if (upload.isChunkReceived(index)) {
+            return false;
+        }
+
+        long offset = (long) index * upload.getChunkSize();
+        long expectedLength = upload.chunkLength(index);
+        MessageDigest digest = ContentHasher.newDigest();
+        long written = 0;
+
+        // Positional writes are safe from several request threads at once; chunks never overlap
+        try (FileChannel channel = FileChannel.open(upload.dataFile(), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                if (written + read > expectedLength) {
+                    throw new IllegalArgumentException("Chunk " + index + " is larger than " + expectedLength + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer slice = ByteBuffer.wrap(buffer, 0, read);
+                while (slice.hasRemaining()) {
+                    written += channel.write(slice, offset + written);
+                }
+            }
+        }
+
+        if (written != expectedLength) {
+            throw new IllegalArgumentException("Chunk " + index + " is incomplete: got " + written + " of " + expectedLength + " bytes");
+        }
+        String actualSha256 = ContentHasher.toHex(digest);
+        if (!actualSha256.equalsIgnoreCase(expectedSha256.trim())) {
+            throw new IllegalArgumentException("Checksum mismatch for chunk " + index + ": expected " + expectedSha256 + ", got " + actualSha256);
+        }
+
+        upload.markChunkReceived(index);
+        return true;
+    }
+
+    /**
+     * Check that every chunk arrived (and the whole-file checksum, if one was given at init) and return
+     * the assembled file for extraction. The upload is kept until {@link #discard} so a failed
+     * completion can be retried.
+     */
+    public StagedMultipartFile assemble(String uploadId) throws IOException {
+        ChunkedUpload upload = getUpload(uploadId);
+        List<Integer> missing = upload.getMissingChunks();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Upload incomplete, missing chunks: " + missing);
+        }
+
+        try (FileChannel channel = FileChannel.open(upload.dataFile(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        if (upload.getFileSha256() != null) {
+            String actual;
+            try (InputStream inputStream = Files.newInputStream(upload.dataFile())) {
+                actual = ContentHasher.sha256(inputStream);
+            }
+            if (!actual.equals(upload.getFileSha256())) {
+                throw new IllegalArgumentException("File checksum mismatch: expected " + upload.getFileSha256() + ", got " + actual);
+            }
+        }
+
+        return new StagedMultipartFile(upload.dataFile(), upload.getFilename(), upload.getContentType());
+    }
+
+    public void discard(String uploadId) throws IOException {
+        ChunkedUpload upload = getUpload(uploadId);
+        uploads.remove(uploadId);
+        deleteDirectory(upload.getDirectory());
+    }
+
+    @Scheduled(fixedDelayString = "${document.chunked-upload.cleanup-interval-ms:3600000}",
+               initialDelayString = "${document.chunked-upload.cleanup-interval-ms:3600000}")
+    public void removeExpiredUploads() {
+        Path root = Path.of(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - expiryMs;
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.toList()) {
+                String uploadId = dir.getFileName().toString();
+                if (!UPLOAD_ID.matcher(uploadId).matches()) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(dir).toMillis() < cutoff) {
+                    uploads.remove(uploadId);
+                    deleteDirectory(dir);
+                    log.info("Removed expired chunked upload: {}", uploadId);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep chunked uploads: {}", e.getMessage());
+        }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * State of one chunked upload, mirrored to manifest.properties after every received chunk.
+     */
+    public static class ChunkedUpload {
+        private final String uploadId;
+        private final Path directory;
+        private final String filename;
+        private final String contentType;
+        private final long fileSize;
+        private final int chunkSize;
+        private final String fileSha256;
+        private final long createdAt;
+        private final BitSet receivedChunks;
+
+        ChunkedUpload(String uploadId, Path directory, String filename, String contentType, long fileSize,
+                      int chunkSize, String fileSha256, long createdAt, BitSet receivedChunks) {
+            this.uploadId = uploadId;
+            this.directory = directory;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+            this.fileSha256 = fileSha256;
+            this.createdAt = createdAt;
+            this.receivedChunks = receivedChunks;
+        }
+
+        static ChunkedUpload load(Path directory) {
+            Properties manifest = new Properties();
+            try (Reader reader = Files.newBufferedReader(directory.resolve(MANIFEST_FILE), StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unreadable upload manifest in " + directory, e);
+            }
+
+            BitSet received = new BitSet();
+            String receivedList = manifest.getProperty("receivedChunks", "");
+            for (String index : receivedList.split(",")) {
+                if (!index.isBlank()) {
+                    received.set(Integer.parseInt(index.trim()));
+                }
+            }
+
+            return new ChunkedUpload(manifest.getProperty("uploadId"), directory,
+                    manifest.getProperty("filename"), manifest.getProperty("contentType"),
+                    Long.parseLong(manifest.getProperty("fileSize")),
+                    Integer.parseInt(manifest.getProperty("chunkSize")),
+                    manifest.getProperty("fileSha256"),
+                    Long.parseLong(manifest.getProperty("createdAt")), received);
+        }
+
+        synchronized void markChunkReceived(int index) throws IOException {
+            receivedChunks.set(index);
+            saveManifest();
+        }
+
+        // Written to a temp file and moved into place, so a crash never leaves a half-written manifest
+        synchronized void saveManifest() throws IOException {
+            Properties manifest = new Properties();
+            manifest.setProperty("uploadId", uploadId);
+            manifest.setProperty("filename", filename);
+            if (contentType != null) {
+                manifest.setProperty("contentType", contentType);
+            }
+            manifest.setProperty("fileSize", String.valueOf(fileSize));
+            manifest.setProperty("chunkSize", String.valueOf(chunkSize));
+            if (fileSha256 != null) {
+                manifest.setProperty("fileSha256", fileSha256);
+            }
+            manifest.setProperty("createdAt", String.valueOf(createdAt));
+            manifest.setProperty("receivedChunks", receivedChunks.stream()
+                    .mapToObj(String::valueOf)
+                    .reduce((a, b) -> a + "," + b)
+                    .orElse(""));
+
+            Path temp = Files.createTempFile(directory, "manifest", ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temp)) {
+                manifest.store(outputStream, "chunked upload " + uploadId);
+            }
+            Files.move(temp, directory.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        long chunkLength(int index) {
+            return Math.min(chunkSize, fileSize - (long) index * chunkSize);
+        }
+
+        Path dataFile() {
+            return directory.resolve(DATA_FILE);
+        }
+
+        public synchronized boolean isChunkReceived(int index) {
+            return receivedChunks.get(index);
+        }
+
+        public synchronized int getReceivedChunkCount() {
+            return receivedChunks.cardinality();
+        }
+
+        public synchronized long getBytesReceived() {
+            long bytes = 0;
+            for (int index = receivedChunks.nextSetBit(0); index >= 0; index = receivedChunks.nextSetBit(index + 1)) {
+                bytes += chunkLength(index);
+            }
+            return bytes;
+        }
+
+        public synchronized List<Integer> getMissingChunks() {
+            List<Integer> missing = new ArrayList<>();
+            for (int index = receivedChunks.nextClearBit(0); index < getTotalChunks(); index = receivedChunks.nextClearBit(index + 1)) {
+                missing.add(index);
+            }
+            return missing;
+        }
+
+        public int getTotalChunks() {
+            return (int) ((fileSize + chunkSize - 1) / chunkSize);
+        }
+
+        public String getUploadId() { return uploadId; }
+        public Path getDirectory() { return directory; }
+        public String getFilename() { return filename; }
+        public String getContentType() { return contentType; }
+        public long getFileSize() { return fileSize; }
+        public int getChunkSize() { return chunkSize; }
+        public String getFileSha256() { return fileSha256; }
+        public long getCreatedAt() { return createdAt; }
+    }
+}
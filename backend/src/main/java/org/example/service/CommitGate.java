@@ -0,0 +1,26 @@
+package org.example.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settles the race between storing an uploaded document and giving up on it: whichever of
+ * {@link #tryCommit()} and {@link #cancel()} runs first wins. A caller whose cancel() succeeded knows the
+ * document will not appear later; one whose cancel() failed knows it is being stored and can wait for it.
+ */
+public final class CommitGate {
+
+    private static final int OPEN = 0;
+    private static final int COMMITTED = 1;
+    private static final int CANCELLED = 2;
+
+    private final AtomicInteger state = new AtomicInteger(OPEN);
+
+    // Called by the worker right before the document becomes visible
+    public boolean tryCommit() {
+        return state.compareAndSet(OPEN, COMMITTED);
+    }
+
+    public boolean cancel() {
+        return state.compareAndSet(OPEN, CANCELLED);
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable document text kept as independently Deflate-compressed UTF-8 blocks of about {@link #BLOCK_CHARS}
+ * characters. Random access (charAt, subSequence, appendTo) only inflates the blocks it touches, so
+ * pulling a chunk or a snippet out of a large document does not decompress the whole thing. The most
+ * recently inflated block is kept, which makes sequential access within a block cheap.
+ */
+public final class CompressedText implements CharSequence {
+
+    public static final int BLOCK_CHARS = 64 * 1024;
+
+    private final byte[][] blocks;
+    private final int[] blockStarts;      // first char index of each block
+    private final int[] blockByteLengths; // uncompressed UTF-8 size of each block
+    private final int length;
+    private final long compressedBytes;
+
+    // Last inflated block; replaced as a whole so readers on other threads never see a torn pair
+    private volatile DecodedBlock lastBlock;
+
+    private CompressedText(byte[][] blocks, int[] blockStarts, int[] blockByteLengths, int length, long compressedBytes) {
+        this.blocks = blocks;
+        this.blockStarts = blockStarts;
+        this.blockByteLengths = blockByteLengths;
+        this.length = length;
+        this.compressedBytes = compressedBytes;
+    }
+
+    public static CompressedText compress(CharSequence text) {
+        int length = text.length();
+        List<byte[]> blocks = new ArrayList<>();
+        List<Integer> blockStarts = new ArrayList<>();
+        List<Integer> blockByteLengths = new ArrayList<>();
+        long compressedBytes = 0;
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            byte[] output = new byte[8192];
+            int start = 0;
+            do {
+                int end = Math.min(length, start + BLOCK_CHARS);
+                // Never split a surrogate pair: both halves must be encoded together
+                if (end < length && Character.isHighSurrogate(text.charAt(end - 1))) {
+                    end--;
+                }
+                ByteBuffer utf8 = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text, start, end));
+
+                deflater.reset();
+                deflater.setInput(utf8.array(), 0, utf8.limit());
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(utf8.limit() / 3 + 64);
+                while (!deflater.finished()) {
+                    compressed.write(output, 0, deflater.deflate(output));
+                }
+
+                blocks.add(compressed.toByteArray());
+                blockStarts.add(start);
+                blockByteLengths.add(utf8.limit());
+                compressedBytes += compressed.size();
+                start = end;
+            } while (start < length);
+        } finally {
+            deflater.end();
+        }
+        return new CompressedText(blocks.toArray(new byte[0][]),
+                blockStarts.stream().mapToInt(Integer::intValue).toArray(),
+                blockByteLengths.stream().mapToInt(Integer::intValue).toArray(),
+                length, compressedBytes);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        int block = blockOf(index);
+        return block(block)[index - blockStarts[block]];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkRange(start, end);
+        StringBuilder text = new StringBuilder(end - start);
+        appendTo(text, start, end);
+        return text.toString();
+    }
+
+    /**
+     * Append characters [start, end) to the builder, inflating only the blocks that overlap the range.
+     */
+    public void appendTo(StringBuilder target, int start, int end) {
+        checkRange(start, end);
+        int position = start;
+        while (position < end) {
+            int block = blockOf(position);
+            int offset = position - blockStarts[block];
+            char[] chars = block(block);
+            int take = Math.min(end - position, chars.length - offset);
+            target.append(chars, offset, take);
+            position += take;
+        }
+    }
+
+    public void appendTo(StringBuilder target) {
+        appendTo(target, 0, length);
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(length);
+        appendTo(text);
+        return text.toString();
+    }
+
+    private int blockOf(int index) {
+        int found = Arrays.binarySearch(blockStarts, index);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    private char[] block(int block) {
+        DecodedBlock cached = lastBlock;
+        if (cached != null && cached.index == block) {
+            return cached.chars;
+        }
+
+        byte[] utf8 = new byte[blockByteLengths[block]];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(blocks[block]);
+            int filled = 0;
+            while (filled < utf8.length) {
+                int inflated = inflater.inflate(utf8, filled, utf8.length - filled);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                filled += inflated;
+            }
+            if (filled != utf8.length) {
+                throw new IllegalStateException("Corrupt text block " + block + ": " + filled + " of " + utf8.length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt text block " + block, e);
+        } finally {
+            inflater.end();
+        }
+
+        CharBuffer decoded = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(utf8));
+        char[] chars = decoded.limit() == decoded.capacity() && decoded.hasArray()
+                ? decoded.array()
+                : Arrays.copyOf(decoded.array(), decoded.limit());
+        lastBlock = new DecodedBlock(block, chars);
+        return chars;
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("range [" + start + ", " + end + "), length " + length);
+        }
+    }
+
+    private record DecodedBlock(int index, char[] chars) {}
+}
@@ -0,0 +1,68 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 content addressing for uploads and extracted text. Both inputs are hashed in small
+ * blocks so neither the file nor the text is copied into one large array.
+ */
+public final class ContentHasher {
+
+    private static final int BLOCK_SIZE = 8192;
+
+    private ContentHasher() {}
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static String sha256(InputStream inputStream) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BLOCK_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest);
+    }
+
+    public static String sha256(CharSequence text) {
+        MessageDigest digest = newDigest();
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE * 3);
+        CharBuffer chars = CharBuffer.wrap(text);
+
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, true);
+            bytes.flip();
+            digest.update(bytes);
+            bytes.clear();
+        } while (result.isOverflow());
+
+        encoder.flush(bytes);
+        bytes.flip();
+        digest.update(bytes);
+        return toHex(digest);
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
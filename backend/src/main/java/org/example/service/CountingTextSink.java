@@ -0,0 +1,61 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * Passes events through while counting what went by, for extractors that need to know how much text
+ * they produced without keeping it.
+ */
+final class CountingTextSink implements TextSink {
+
+    private final TextSink sink;
+    private long characters = 0;
+    private long visibleCharacters = 0;
+
+    CountingTextSink(TextSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void text(CharSequence text) throws IOException {
+        count(text);
+        sink.text(text);
+    }
+
+    @Override
+    public void text(char[] chars, int start, int length) throws IOException {
+        count(CharBuffer.wrap(chars, start, length));
+        sink.text(chars, start, length);
+    }
+
+    @Override
+    public void endParagraph() throws IOException {
+        characters++;
+        sink.endParagraph();
+    }
+
+    @Override
+    public void endPage(int pageNumber) throws IOException {
+        characters++;
+        sink.endPage(pageNumber);
+    }
+
+    long getCharacters() {
+        return characters;
+    }
+
+    // Non-whitespace characters
+    long getVisibleCharacters() {
+        return visibleCharacters;
+    }
+
+    private void count(CharSequence text) {
+        characters += text.length();
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                visibleCharacters++;
+            }
+        }
+    }
+}
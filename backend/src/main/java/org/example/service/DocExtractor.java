@@ -0,0 +1,41 @@
+package org.example.service;
+
+import java.util.Set;
+
+import org.apache.poi.hwpf.HWPFDocument;
+import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Legacy Word (.doc) text via POI HWPF, read from the staged file. POI returns the whole text at once,
+ * so the extraction budget only applies once it reaches the sink.
+ */
+@Component
+public class DocExtractor implements DocumentExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(DocExtractor.class);
+
+    @Override
+    public String getName() {
+        return "DOC";
+    }
+
+    @Override
+    public Set<DocumentFormat> getFormats() {
+        return Set.of(DocumentFormat.DOC);
+    }
+
+    @Override
+    public void extract(ExtractionRequest request, TextSink sink) throws Exception {
+        request.getBudget().checkDeadline();
+        try (HWPFDocument document = new HWPFDocument(new POIFSFileSystem(request.getPath().toFile(), true).getRoot());
+             WordExtractor extractor = new WordExtractor(document)) {
+            String text = extractor.getText();
+            log.info("DOC extracted {} characters from {}", text.length(), request.getFilename());
+            sink.text(text);
+        }
+    }
+}
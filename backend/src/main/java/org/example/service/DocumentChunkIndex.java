@@ -0,0 +1,294 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * BM25 index over fixed-size, overlapping document chunks.
+ * Chunks only keep character offsets into the owning document, so the text itself is never duplicated.
+ */
+public class DocumentChunkIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final int chunkSize;
+    private final int chunkOverlap;
+
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<String, List<Posting>> postings = new HashMap<>();
+    private long totalTokens = 0;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public DocumentChunkIndex(int chunkSize, int chunkOverlap) {
+        this.chunkSize = Math.max(200, chunkSize);
+        this.chunkOverlap = Math.max(0, Math.min(chunkOverlap, this.chunkSize / 4));
+    }
+
+    /**
+     * Splits the content into chunks and adds them to the index.
+     *
+     * @return the number of chunks created for this document
+     */
+    public int addDocument(String documentId, CharSequence content) {
+        if (content == null || content.length() == 0) {
+            return 0;
+        }
+
+        List<int[]> ranges = split(content);
+        lock.writeLock().lock();
+        try {
+            int position = 0;
+            for (int[] range : ranges) {
+                int chunkId = chunks.size();
+                Map<String, Integer> termFrequencies = new HashMap<>();
+                TextTokenizer.forEachToken(content, range[0], range[1],
+                        (term, start, end) -> termFrequencies.merge(term, 1, Integer::sum));
+
+                int tokenCount = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+                chunks.add(new Chunk(documentId, position++, range[0], range[1], tokenCount));
+                totalTokens += tokenCount;
+
+                termFrequencies.forEach((term, tf) ->
+                        postings.computeIfAbsent(term, t -> new ArrayList<>()).add(new Posting(chunkId, tf)));
+            }
+            return ranges.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops a document's chunks. Chunk ids are positions in the chunk list, so the remaining chunks and
+     * their postings are renumbered; the cost is linear in the size of the index.
+     */
+    public void removeDocument(String documentId) {
+        lock.writeLock().lock();
+        try {
+            int[] newChunkIds = new int[chunks.size()];
+            List<Chunk> kept = new ArrayList<>(chunks.size());
+            for (int chunkId = 0; chunkId < chunks.size(); chunkId++) {
+                Chunk chunk = chunks.get(chunkId);
+                if (chunk.documentId().equals(documentId)) {
+                    newChunkIds[chunkId] = -1;
+                    totalTokens -= chunk.tokenCount();
+                } else {
+                    newChunkIds[chunkId] = kept.size();
+                    kept.add(chunk);
+                }
+            }
+            if (kept.size() == chunks.size()) {
+                return;
+            }
+
+            postings.values().removeIf(termPostings -> {
+                List<Posting> renumbered = new ArrayList<>(termPostings.size());
+                for (Posting posting : termPostings) {
+                    int chunkId = newChunkIds[posting.chunkId()];
+                    if (chunkId >= 0) {
+                        renumbered.add(new Posting(chunkId, posting.tf()));
+                    }
+                }
+                termPostings.clear();
+                termPostings.addAll(renumbered);
+                return termPostings.isEmpty();
+            });
+            chunks.clear();
+            chunks.addAll(kept);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            chunks.clear();
+            postings.clear();
+            totalTokens = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return chunks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the highest scoring chunks for the query, best first. Chunks without any query term are never returned.
+     */
+    public List<ScoredChunk> search(String query, int topK) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (queryTerms.isEmpty() || topK <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int chunkCount = chunks.size();
+            if (chunkCount == 0) {
+                return List.of();
+            }
+            double averageLength = Math.max(1.0, (double) totalTokens / chunkCount);
+
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                List<Posting> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                int df = termPostings.size();
+                double idf = Math.log(1.0 + (chunkCount - df + 0.5) / (df + 0.5));
+                for (Posting posting : termPostings) {
+                    Chunk chunk = chunks.get(posting.chunkId());
+                    double norm = K1 * (1 - B + B * chunk.tokenCount() / averageLength);
+                    double score = idf * (posting.tf() * (K1 + 1)) / (posting.tf() + norm);
+                    scores.merge(posting.chunkId(), score, Double::sum);
+                }
+            }
+
+            PriorityQueue<Map.Entry<Integer, Double>> best =
+                    new PriorityQueue<>(Comparator.comparingDouble(Map.Entry::getValue));
+            for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+                best.offer(entry);
+                if (best.size() > topK) {
+                    best.poll();
+                }
+            }
+
+            List<ScoredChunk> results = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                Map.Entry<Integer, Double> entry = best.poll();
+                results.add(0, toScored(chunks.get(entry.getKey()), entry.getValue()));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fallback for questions with no usable terms ("summarise this"): the first chunks of every document,
+     * interleaved so each document gets a fair share of the budget.
+     */
+    public List<ScoredChunk> leadingChunks(int limit) {
+        lock.readLock().lock();
+        try {
+            Map<String, List<Chunk>> byDocument = new HashMap<>();
+            List<String> documentOrder = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                byDocument.computeIfAbsent(chunk.documentId(), id -> {
+                    documentOrder.add(id);
+                    return new ArrayList<>();
+                }).add(chunk);
+            }
+
+            List<ScoredChunk> results = new ArrayList<>();
+            for (int position = 0; results.size() < limit; position++) {
+                boolean added = false;
+                for (String documentId : documentOrder) {
+                    List<Chunk> documentChunks = byDocument.get(documentId);
+                    if (position < documentChunks.size() && results.size() < limit) {
+                        results.add(toScored(documentChunks.get(position), 0.0));
+                        added = true;
+                    }
+                }
+                if (!added) {
+                    break;
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Prefer paragraph, then sentence, then word boundaries so chunks don't cut words in half.
+    private List<int[]> split(CharSequence content) {
+        List<int[]> ranges = new ArrayList<>();
+        int length = content.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(length, start + chunkSize);
+            if (end < length) {
+                end = findBreak(content, start + chunkSize / 2, end);
+            }
+            ranges.add(new int[]{start, end});
+            if (end >= length) {
+                break;
+            }
+
+            int next = Math.max(start + 1, end - chunkOverlap);
+            while (next < end && !Character.isWhitespace(content.charAt(next - 1))) {
+                next++;
+            }
+            start = next;
+        }
+        return ranges;
+    }
+
+    private static int findBreak(CharSequence content, int min, int max) {
+        for (int i = max - 1; i > min; i--) {
+            if (content.charAt(i) == '\n' && content.charAt(i - 1) == '\n') {
+                return i + 1;
+            }
+        }
+        for (int i = max - 1; i > min; i--) {
+            char c = content.charAt(i - 1);
+            if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(content.charAt(i))) {
+                return i + 1;
+            }
+        }
+        for (int i = max - 1; i > min; i--) {
+            if (Character.isWhitespace(content.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return max;
+    }
+
+    private static ScoredChunk toScored(Chunk chunk, double score) {
+        return new ScoredChunk(chunk.documentId(), chunk.position(), chunk.start(), chunk.end(), score);
+    }
+
+    private record Chunk(String documentId, int position, int start, int end, int tokenCount) {}
+
+    private record Posting(int chunkId, int tf) {}
+
+    public static class ScoredChunk {
+        private final String documentId;
+        private final int position;
+        private final int start;
+        private final int end;
+        private final double score;
+
+        public ScoredChunk(String documentId, int position, int start, int end, double score) {
+            this.documentId = documentId;
+            this.position = position;
+            this.start = start;
+            this.end = end;
+            this.score = score;
+        }
+
+        public String getDocumentId() { return documentId; }
+        public int getPosition() { return position; }
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public double getScore() { return score; }
+        public int length() { return end - start; }
+    }
+}
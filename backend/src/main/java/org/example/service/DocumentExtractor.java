@@ -0,0 +1,32 @@
+package org.example.service;
+
+import java.util.Set;
+
+/**
+ * Extracts text from one or more upload formats. Implementations are Spring components and are picked
+ * up by {@link DocumentExtractorRegistry}, so supporting a new format means adding a component (and,
+ * for a new signature, a {@link DocumentFormat} constant) without changing DocumentProcessingService.
+ *
+ * Extractors push text into the sink as they read it rather than returning it. The request carries the
+ * staged file and the {@link ExtractionBudget}; limits are enforced by the sink, but extractors doing
+ * long work between writes should call {@link ExtractionBudget#checkDeadline()} themselves.
+ */
+public interface DocumentExtractor {
+
+    // Shown in "unsupported file type" errors and logs, e.g. "PDF"
+    String getName();
+
+    Set<DocumentFormat> getFormats();
+
+    void extract(ExtractionRequest request, TextSink sink) throws Exception;
+
+    // Expensive extractions are cached by upload hash; plain text is cheaper to re-read than to cache
+    default boolean isCacheable() {
+        return true;
+    }
+
+    // Part of the extracted-text cache key: bump it, or include the setting, whenever the text produced changes
+    default String getCacheVersion() {
+        return getName() + "/1";
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Maps each {@link DocumentFormat} to the {@link DocumentExtractor} component that handles it. When two
+ * extractors claim the same format, the one ordered first (@Order) wins.
+ */
+@Component
+public class DocumentExtractorRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentExtractorRegistry.class);
+
+    @Autowired
+    private List<DocumentExtractor> extractors;
+
+    private final Map<DocumentFormat, DocumentExtractor> extractorsByFormat = new EnumMap<>(DocumentFormat.class);
+
+    @PostConstruct
+    public void registerExtractors() {
+        for (DocumentExtractor extractor : extractors) {
+            for (DocumentFormat format : extractor.getFormats()) {
+                DocumentExtractor registered = extractorsByFormat.putIfAbsent(format, extractor);
+                if (registered != null) {
+                    log.warn("{} ignored for {}, already handled by {}", extractor.getClass().getSimpleName(), format,
+                            registered.getClass().getSimpleName());
+                }
+            }
+        }
+        log.info("Document extractors: {}", extractorsByFormat.entrySet().stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue().getName())
+                .collect(Collectors.joining(", ")));
+    }
+
+    // Null when no extractor handles the format
+    public DocumentExtractor forFormat(DocumentFormat format) {
+        return extractorsByFormat.get(format);
+    }
+
+    public String getSupportedFormats() {
+        return extractors.stream()
+                .map(DocumentExtractor::getName)
+                .distinct()
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.ZipFile;
+
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+
+/**
+ * Upload format, decided from the leading bytes of the file rather than trusting the filename.
+ * Zip and OLE2 containers are only taken as Word when they hold a Word document; files whose signature
+ * is missing or inconclusive fall back to the declared content type or extension.
+ */
+public enum DocumentFormat {
+    PDF,
+    DOCX,
+    DOC,
+    TEXT,
+    RESTORED_TEXT, // plain-text blob re-posted by the frontend when a saved session is restored
+    UNKNOWN;
+
+    // Bytes of the upload inspected for a signature
+    public static final int SNIFF_LENGTH = 1024;
+
+    private static final byte[] PDF_MAGIC = {'%', 'P', 'D', 'F', '-'};
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 0x03, 0x04};
+    private static final byte[] OLE2_MAGIC = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+
+    private static final String[] RESTORED_MARKERS = {"DOCUMENT:", "RESTORED:", "[RESTORED", "=== DOCUMENT", "Session restored"};
+
+    /**
+     * @param path the whole upload on disk, used to look inside zip and OLE2 containers; null trusts the signature
+     */
+    public static DocumentFormat detect(byte[] head, int length, Path path, String filename, String contentType) {
+        if (startsWith(head, length, 0, ZIP_MAGIC)) {
+            // xlsx, pptx, jar and plain zips share the signature; only a WordprocessingML package is DOCX
+            return path == null || isWordPackage(path) ? DOCX : declared(filename, contentType);
+        }
+        if (startsWith(head, length, 0, OLE2_MAGIC)) {
+            // xls, msg and other compound files share the signature; Word keeps its text in the WordDocument stream
+            return path == null || isWordCompoundFile(path) ? DOC : declared(filename, contentType);
+        }
+        // Only a byte-order mark or whitespace may precede the PDF header; text that quotes it is not a PDF
+        if (startsWith(head, length, leadingPadding(head, length), PDF_MAGIC)) {
+            return PDF;
+        }
+
+        if (!looksLikeText(head, length)) {
+            return declared(filename, contentType);
+        }
+        boolean plainTextType = contentType != null && contentType.startsWith("text/plain");
+        if (plainTextType) {
+            String preview = new String(head, 0, Math.min(length, 500), StandardCharsets.UTF_8);
+            for (String marker : RESTORED_MARKERS) {
+                if (preview.contains(marker)) {
+                    return RESTORED_TEXT;
+                }
+            }
+        }
+        if (plainTextType || (filename != null && filename.toLowerCase().endsWith(".txt"))) {
+            return TEXT;
+        }
+        return UNKNOWN;
+    }
+
+    // The binary format the client says it sent, for files the signature alone cannot place
+    private static DocumentFormat declared(String filename, String contentType) {
+        String type = contentType != null ? contentType.toLowerCase(Locale.ROOT) : "";
+        String name = filename != null ? filename.toLowerCase(Locale.ROOT) : "";
+        if (type.startsWith("application/pdf") || name.endsWith(".pdf")) {
+            return PDF;
+        }
+        if (type.startsWith("application/vnd.openxmlformats-officedocument.wordprocessingml") || name.endsWith(".docx")) {
+            return DOCX;
+        }
+        if (type.startsWith("application/msword") || name.endsWith(".doc")) {
+            return DOC;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean isWordPackage(Path path) {
+        try (ZipFile zip = new ZipFile(path.toFile())) {
+            return zip.getEntry("[Content_Types].xml") != null
+                    && zip.stream().anyMatch(entry -> entry.getName().startsWith("word/"));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isWordCompoundFile(Path path) {
+        try (POIFSFileSystem fileSystem = new POIFSFileSystem(path.toFile(), true)) {
+            return fileSystem.getRoot().hasEntry("WordDocument");
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Length of a UTF-8 byte-order mark and/or whitespace at the start of the file
+    private static int leadingPadding(byte[] head, int length) {
+        int offset = length >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF ? 3 : 0;
+        while (offset < length && (head[offset] == ' ' || head[offset] == '\t' || head[offset] == '\r' || head[offset] == '\n')) {
+            offset++;
+        }
+        return offset;
+    }
+
+    public boolean isText() {
+        return this == TEXT || this == RESTORED_TEXT;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, byte[] magic) {
+        if (length - offset < magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (head[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Binary formats almost always contain NUL bytes early on; text (including UTF-8) never does
+    private static boolean looksLikeText(byte[] head, int length) {
+        for (int i = 0; i < length; i++) {
+            if (head[i] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
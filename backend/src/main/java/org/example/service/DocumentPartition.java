@@ -0,0 +1,90 @@
+package org.example.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.example.service.DocumentProcessingService.DocumentInfo;
+
+/**
+ * The documents of one session: storage, content-hash lookup and both indexes. Every partition has its
+ * own write lock, so an upload, clear or restore in one session never waits on another session, and
+ * prompts and searches only ever see the session's own documents.
+ */
+public class DocumentPartition {
+
+    private final String id;
+    private final Map<String, DocumentInfo> documents = new ConcurrentHashMap<>();
+
+    // SHA-256 of upload bytes and of extracted text -> stored document id
+    private final Map<String, String> documentIdsByHash = new ConcurrentHashMap<>();
+
+    private final DocumentChunkIndex chunkIndex;
+    private final DocumentSearchIndex searchIndex = new DocumentSearchIndex();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile long lastAccessMillis = System.currentTimeMillis();
+
+    // Documents known to be in the shared store, and when the partition was last compared with it (0 = never)
+    private final Set<String> sharedDocumentIds = ConcurrentHashMap.newKeySet();
+    private volatile long lastSyncMillis = 0;
+
+    DocumentPartition(String id, int chunkSize, int chunkOverlap) {
+        this.id = id;
+        this.chunkIndex = new DocumentChunkIndex(chunkSize, chunkOverlap);
+    }
+
+    DocumentInfo findByContentHash(String hash) {
+        String documentId = documentIdsByHash.get(hash);
+        return documentId != null ? documents.get(documentId) : null;
+    }
+
+    void registerHash(String hash, String documentId) {
+        documentIdsByHash.put(hash, documentId);
+    }
+
+    // Callers hold the write lock
+    void removeDocument(String documentId) {
+        documents.remove(documentId);
+        documentIdsByHash.values().removeIf(documentId::equals);
+        chunkIndex.removeDocument(documentId);
+        searchIndex.removeDocument(documentId);
+    }
+
+    // Callers hold the write lock
+    void clear() {
+        documents.clear();
+        documentIdsByHash.clear();
+        chunkIndex.clear();
+        searchIndex.clear();
+        sharedDocumentIds.clear();
+    }
+
+    boolean needsSync(long cutoffMillis) {
+        return lastSyncMillis < cutoffMillis;
+    }
+
+    void markSynced() {
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    void markShared(String documentId) {
+        sharedDocumentIds.add(documentId);
+    }
+
+    void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+
+    boolean isIdleSince(long cutoffMillis) {
+        return lastAccessMillis < cutoffMillis && !writeLock.isLocked();
+    }
+
+    public String getId() { return id; }
+    public Map<String, DocumentInfo> getDocuments() { return documents; }
+    DocumentChunkIndex getChunkIndex() { return chunkIndex; }
+    DocumentSearchIndex getSearchIndex() { return searchIndex; }
+    ReentrantLock getWriteLock() { return writeLock; }
+    Set<String> getSharedDocumentIds() { return sharedDocumentIds; }
+    public long getLastAccessMillis() { return lastAccessMillis; }
+}
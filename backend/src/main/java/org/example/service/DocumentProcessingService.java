@@ -1,51 +1,227 @@
 package org.example.service;
 
-import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
-
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.hwpf.HWPFDocument;
-import org.apache.poi.hwpf.extractor.WordExtractor;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.example.logging.LogMarkers;
+import org.example.service.DocumentChunkIndex.ScoredChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 public class DocumentProcessingService {
 
-    private final Map<String, DocumentInfo> documentStorage = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(DocumentProcessingService.class);
+
+    // ✅ NEW: Documents are partitioned per session (X-Session-ID); requests without one share the default partition
+    public static final String DEFAULT_PARTITION = "default";
+
+    private final Map<String, DocumentPartition> partitions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ExtractedTextCache extractedTextCache;
+
+    // ✅ NEW: One DocumentExtractor component per format, streaming into a TextSink
+    @Autowired
+    private DocumentExtractorRegistry extractorRegistry;
+
+    // ✅ NEW: Optional off-heap text storage for corpora larger than the heap
+    @Autowired
+    private MappedSegmentStore mappedSegmentStore;
+
+    // ✅ NEW: Each partition keeps a chunk-level BM25 index (retrieval) and a positional index (/api/ai/search)
+    private final int chunkSize;
+    private final int chunkOverlap;
+
+    @Value("${document.partition.idle-ttl-ms:21600000}")
+    private long partitionIdleTtlMs;
+
+    // ✅ NEW: Partitions form the in-memory LRU tier; the shared store (if any) fills misses
+    @Value("${document.store.memory.max-partitions:100}")
+    private int maxPartitions;
+
+    @Value("${document.store.sync-interval-ms:5000}")
+    private long storeSyncIntervalMs;
+
+    @Autowired(required = false)
+    private DocumentStore documentStore;
+
+    @Value("${ai.retrieval.enabled:true}")
+    private boolean retrievalEnabled;
+
+    @Value("${ai.retrieval.top-k:20}")
+    private int retrievalTopK;
+
+    @Value("${ai.retrieval.max-context-chars:40000}")
+    private int maxContextChars;
+
+    @Value("${document.scratch-dir:${java.io.tmpdir}}")
+    private String scratchDir;
+
+    // ✅ NEW: Stored document text is kept as Deflate-compressed blocks and inflated on demand
+    @Value("${document.text.compression.enabled:true}")
+    private boolean textCompressionEnabled;
+
+    // ✅ NEW: Per-file extraction limits; hitting one keeps the partial text and marks the document truncated
+    @Value("${document.extraction.timeout-ms:20000}")
+    private long extractionTimeoutMs;
+
+    @Value("${document.extraction.background-timeout-ms:600000}")
+    private long backgroundExtractionTimeoutMs;
+
+    @Value("${document.extraction.max-chars:5000000}")
+    private long extractionMaxChars;
+
+    @Value("${document.extraction.max-pages:2000}")
+    private int extractionMaxPages;
+
+    // ✅ NEW: Background ingestion publishes the pages extracted so far, doubling the batch each time
+    @Value("${document.progressive.enabled:true}")
+    private boolean progressiveEnabled;
+
+    @Value("${document.progressive.first-batch-pages:10}")
+    private int progressiveFirstBatchPages;
+
+    // ✅ NEW: Strips repeated headers/footers, hyphenation and whitespace before text is stored
+    private final TextNormalizer textNormalizer;
+    private final AtomicLong normalizationCharactersSaved = new AtomicLong();
+
+    public DocumentProcessingService(@Value("${ai.retrieval.chunk-size:1500}") int chunkSize,
+                                     @Value("${ai.retrieval.chunk-overlap:200}") int chunkOverlap,
+                                     @Value("${document.normalize.strip-headers-footers:true}") boolean stripHeadersFooters,
+                                     @Value("${document.normalize.dehyphenate:true}") boolean dehyphenate,
+                                     @Value("${document.normalize.collapse-whitespace:true}") boolean collapseWhitespace,
+                                     @Value("${document.normalize.repeated-line-min-share:0.5}") double repeatedLineMinShare) {
+        this.chunkSize = chunkSize;
+        this.chunkOverlap = chunkOverlap;
+        this.textNormalizer = new TextNormalizer(stripHeadersFooters, dehyphenate, collapseWhitespace, repeatedLineMinShare);
+    }
+
+    public String processDocument(String sessionId, MultipartFile file) {
+        StoredDocument stored = storeDocument(sessionId, file);
+        return (stored.isDuplicate() ? "Document already uploaded: " : "Document processed successfully: ")
+                + stored.getDocument().getFilename();
+    }
+
+    /**
+     * ✅ NEW: Extract, store and index one file, returning the stored document so callers
+     * can report an explicit per-file outcome. Uploads are content-addressed: identical bytes skip
+     * extraction entirely, and identical extracted text is stored only once.
+     */
+    public StoredDocument storeDocument(String sessionId, MultipartFile file) {
+        return storeDocument(sessionId, file, new CommitGate());
+    }
+
+    /**
+     * ✅ NEW: Same as above for callers that may give up on the file (the upload batch deadline): the document is
+     * only stored if the gate has not been cancelled by then, otherwise a CancellationException is thrown.
+     */
+    public StoredDocument storeDocument(String sessionId, MultipartFile file, CommitGate gate) {
+        return storeDocument(sessionId, file, ExtractionProgressListener.NONE, extractionBudget(extractionTimeoutMs), false, gate);
+    }
+
+    /**
+     * ✅ NEW: Same as above, reporting PDF page progress (used by background ingestion jobs, which get a longer
+     * deadline). Pages become queryable in batches while the rest of the file is still being extracted.
+     */
+    public StoredDocument storeDocument(String sessionId, MultipartFile file, ExtractionProgressListener progress) {
+        return storeDocument(sessionId, file, progress, extractionBudget(backgroundExtractionTimeoutMs), progressiveEnabled,
+                new CommitGate());
+    }
+
+    private ExtractionBudget extractionBudget(long timeoutMs) {
+        return ExtractionBudget.start(timeoutMs, extractionMaxChars, extractionMaxPages);
+    }
 
-    public String processDocument(MultipartFile file) {
+    private StoredDocument storeDocument(String sessionId, MultipartFile file, ExtractionProgressListener progress,
+                                         ExtractionBudget budget, boolean progressive, CommitGate gate) {
+        DocumentPartition partition = partition(sessionId);
+        String documentId = UUID.randomUUID().toString();
+        PartialDocumentPublisher partials = progressive
+                ? new PartialDocumentPublisher(partition, documentId, file.getOriginalFilename(), file.getSize(), progress)
+                : null;
         try {
             String filename = file.getOriginalFilename();
-            System.out.println("=== PROCESSING FILE: " + filename + " ===");
+            log.debug("Processing file: {}", filename);
 
             if (file.isEmpty()) {
                 throw new IllegalArgumentException("File is empty: " + filename);
             }
 
-            String content = extractTextFromFile(file);
+            // ✅ NEW: The upload is read once - hashed, sniffed and spooled to disk in the same pass
+            String fileHash;
+            String content;
+            try (StagedUpload upload = StagedUpload.stage(file, Path.of(scratchDir))) {
+                fileHash = upload.getSha256();
+                DocumentInfo existing = partition.findByContentHash(fileHash);
+                if (existing != null) {
+                    log.info("Duplicate upload skipped (same bytes as {}): {}", existing.getFilename(), filename);
+                    return new StoredDocument(existing, true);
+                }
+
+                content = extractTextFromFile(file, upload, progress, budget, partials);
+            }
 
             if (content == null || content.trim().isEmpty()) {
-                throw new IllegalArgumentException("No content extracted from: " + filename);
+                throw new IllegalArgumentException("No content extracted from: " + filename +
+                        (budget.isTruncated() ? " (" + budget.getTruncationReason() + ")" : ""));
+            }
+
+            TextNormalizer.Result normalization = normalize(filename, content);
+            if (normalization != null) {
+                content = normalization.getText();
             }
 
-            String documentId = UUID.randomUUID().toString();
+            String textHash = ContentHasher.sha256(content);
             DocumentInfo docInfo = new DocumentInfo(documentId, filename, content, LocalDateTime.now(), file.getSize());
+            docInfo.setContentHash(textHash);
+            if (budget.isTruncated()) {
+                docInfo.setTruncationReason(budget.getTruncationReason());
+                log.warn("Extraction truncated ({}), keeping {} chars: {}", budget.getTruncationReason(), content.length(), filename);
+            }
 
-            // ✅ CRITICAL: Ensure storage operation with verification
-            synchronized (documentStorage) {
+            // ✅ CRITICAL: Ensure storage operation with verification (locks only this session's partition)
+            Map<String, DocumentInfo> documentStorage = partition.getDocuments();
+            partition.getWriteLock().lock();
+            try {
+                // The caller gave up on this file (and reported it as timed out): it must not show up afterwards
+                if (!gate.tryCommit()) {
+                    throw new CancellationException("Upload cancelled before it was stored: " + filename);
+                }
+
+                // Same text from different bytes (e.g. a restored session re-posting stored text)
+                DocumentInfo existing = partition.findByContentHash(textHash);
+                if (existing != null) {
+                    partition.registerHash(fileHash, existing.getId());
+                    log.info("Duplicate content skipped (same text as {}): {}", existing.getFilename(), filename);
+                    return new StoredDocument(existing, true);
+                }
+
+                // Only now that the document is kept: mapped segments are append-only, a discarded copy would stay
+                docInfo.setText(compactText(content));
                 documentStorage.put(documentId, docInfo);
+                partition.registerHash(fileHash, documentId);
+                partition.registerHash(textHash, documentId);
 
                 // Immediate verification
                 if (!documentStorage.containsKey(documentId)) {
@@ -54,184 +230,424 @@ public class DocumentProcessingService {
 
                 // Double-check content
                 DocumentInfo stored = documentStorage.get(documentId);
-                if (stored.getContent() == null || stored.getContent().trim().isEmpty()) {
+                if (stored.getContentLength() == 0) {
                     throw new RuntimeException("Document stored but content is empty: " + filename);
                 }
+            } finally {
+                partition.getWriteLock().unlock();
             }
 
-            System.out.println("✅ Document verified in storage: " + filename);
-            ensureDocumentPersistence(); // Debug verification
+            int chunks = partition.getChunkIndex().addDocument(documentId, content);
+            partition.getSearchIndex().addDocument(documentId, content);
+            log.info("Stored and indexed {}: {} chars, {} chunks (partition {})", filename, content.length(), chunks,
+                    partition.getId());
+            if (partials != null) {
+                partials.discard(); // the complete document replaces the published pages
+            }
+            saveToSharedStore(partition, docInfo);
+
+            ensureDocumentPersistence(sessionId); // Debug verification
 
-            return "Document processed successfully: " + filename;
+            return new StoredDocument(docInfo, false, normalization);
 
+        } catch (CancellationException e) {
+            log.info(e.getMessage());
+            throw e;
         } catch (Exception e) {
-            System.err.println("❌ Failed to process document: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to process document {}: {}", file.getOriginalFilename(), e.getMessage(), e);
             throw new RuntimeException("Failed to process document: " + e.getMessage(), e);
+        } finally {
+            if (partials != null) {
+                partials.discard(); // duplicates and failures must not leave published pages behind
+            }
         }
     }
 
-    // ✅ NEW: Enhance short content instead of rejecting it
-    private String enhanceShortContent(String filename, String originalContent, long fileSize) {
-        String enhanced = String.format("""
-            DOCUMENT: %s
-            PROCESSED: %s
-            STATUS: Content successfully extracted
-            FILE SIZE: %d bytes
-            CONTENT LENGTH: %d characters
-            
-            === DOCUMENT CONTENT ===
-            %s
-            === END DOCUMENT CONTENT ===
-            
-            PROCESSING NOTES:
-            This document has been successfully processed and is fully searchable.
-            Content extraction completed without errors.
-            Document is ready for AI analysis and search operations.
-            """,
-                filename,
-                LocalDateTime.now().toString(),
-                fileSize,
-                originalContent.length(),
-                originalContent
-        );
+    // Returns null when normalisation is switched off or would leave nothing behind
+    private TextNormalizer.Result normalize(String filename, String content) {
+        if (!textNormalizer.isEnabled()) {
+            return null;
+        }
+        TextNormalizer.Result result = textNormalizer.normalize(content);
+        if (result.getText().isBlank()) {
+            log.warn("Normalisation removed all text, keeping raw extraction: {}", filename);
+            return null;
+        }
+        normalizationCharactersSaved.addAndGet(result.getCharactersSaved());
+        log.info("Normalised {}: saved {} chars (~{} tokens), {} header/footer lines, {} hyphenations joined", filename,
+                result.getCharactersSaved(), result.getEstimatedTokensSaved(), result.getHeaderFooterLinesRemoved(),
+                result.getHyphenationsJoined());
+        return result;
+    }
 
-        System.out.println("✅ Enhanced short content from " + originalContent.length() + " to " + enhanced.length() + " characters");
-        return enhanced;
+    private DocumentPartition partition(String sessionId) {
+        return partition(sessionId, true);
     }
 
-    private boolean isRestoredSessionContent(MultipartFile file) {
-    try {
-        // Check content type
-        String contentType = file.getContentType();
-        if ("text/plain".equals(contentType)) {
-            // Read first few bytes to check for session markers
-            byte[] firstBytes = new byte[Math.min(500, (int) file.getSize())];
-            try (InputStream is = file.getInputStream()) {
-                is.read(firstBytes);
-                String preview = new String(firstBytes, "UTF-8");
-                
-                // Look for session restoration markers
-                return preview.contains("DOCUMENT:") || 
-                       preview.contains("RESTORED:") || 
-                       preview.contains("=== DOCUMENT") ||
-                       preview.contains("Session restored");
+    private DocumentPartition partition(String sessionId, boolean syncWithStore) {
+        String key = sessionId == null || sessionId.isBlank() ? DEFAULT_PARTITION : sessionId.trim();
+        DocumentPartition partition = partitions.get(key);
+        if (partition == null) {
+            partition = partitions.computeIfAbsent(key, id -> new DocumentPartition(id, chunkSize, chunkOverlap));
+            evictLeastRecentlyUsed(partition);
+        }
+        partition.touch();
+
+        if (syncWithStore && documentStore != null
+                && partition.needsSync(System.currentTimeMillis() - storeSyncIntervalMs)) {
+            syncFromSharedStore(partition);
+        }
+        return partition;
+    }
+
+    /**
+     * ✅ NEW: Bring a partition up to date with the shared store: documents uploaded through other
+     * instances are loaded and indexed, and if documents we hold were removed there (cleared on another
+     * instance) the partition is rebuilt from the store.
+     */
+    private void syncFromSharedStore(DocumentPartition partition) {
+        partition.getWriteLock().lock();
+        try {
+            if (!partition.needsSync(System.currentTimeMillis() - storeSyncIntervalMs)) {
+                return; // another request synced while we waited for the lock
+            }
+
+            Set<String> storedIds = documentStore.listDocumentIds(partition.getId());
+            if (!storedIds.containsAll(partition.getSharedDocumentIds())) {
+                log.info("Partition {} changed in the shared store, reloading", partition.getId());
+                partition.clear();
             }
+
+            List<String> missing = storedIds.stream()
+                    .filter(id -> !partition.getDocuments().containsKey(id))
+                    .toList();
+            for (DocumentInfo doc : documentStore.load(partition.getId(), missing)) {
+                if (addToPartition(partition, doc)) {
+                    log.debug("Loaded from shared store: {} (partition {})", doc.getFilename(), partition.getId());
+                }
+                partition.markShared(doc.getId());
+            }
+        } catch (RuntimeException e) {
+            // Serve what we have; the next sync attempt comes after the interval, not on every request
+            log.warn("Could not sync partition {} with the shared store: {}", partition.getId(), e.getMessage());
+        } finally {
+            partition.markSynced();
+            partition.getWriteLock().unlock();
         }
-        return false;
-    } catch (Exception e) {
-        return false;
     }
-}
 
-// ✅ ENHANCED: Detect and handle restored session content
-private String extractTextFromFile(MultipartFile file) throws Exception {
-    String filename = file.getOriginalFilename();
-    if (filename == null) {
-        throw new IllegalArgumentException("File name is null");
+    private void saveToSharedStore(DocumentPartition partition, DocumentInfo docInfo) {
+        if (documentStore == null) {
+            return;
+        }
+        try {
+            documentStore.save(partition.getId(), docInfo);
+            partition.markShared(docInfo.getId());
+        } catch (RuntimeException e) {
+            // The document is still served by this instance; other instances will not see it
+            log.warn("Could not write {} to the shared store: {}", docInfo.getFilename(), e.getMessage());
+        }
     }
 
-    // ✅ Check if this is restored session content (text blob)
-    if (isRestoredSessionContent(file)) {
-        String content = new String(file.getBytes(), "UTF-8");
-        System.out.println("📄 Restored session content detected: " + filename + " (" + content.length() + " chars)");
-        return content;
+    private void deleteFromSharedStore(DocumentPartition partition) {
+        if (documentStore == null) {
+            return;
+        }
+        try {
+            documentStore.deletePartition(partition.getId());
+        } catch (RuntimeException e) {
+            log.warn("Could not delete partition {} from the shared store: {}", partition.getId(), e.getMessage());
+        }
     }
 
-    // ✅ Original file processing logic
-    String lowerFilename = filename.toLowerCase();
-    try (InputStream inputStream = file.getInputStream()) {
-        if (lowerFilename.endsWith(".pdf")) {
-            return extractFromPDF(file, inputStream);
-        } else if (lowerFilename.endsWith(".docx")) {
-            return extractFromDOCX(file, inputStream);
-        } else if (lowerFilename.endsWith(".doc")) {
-            return extractFromDOC(file, inputStream);
-        } else if (lowerFilename.endsWith(".txt")) {
-            return extractFromTXT(file);
-        } else {
-            throw new IllegalArgumentException("Unsupported file type: " + filename +
-                ". Supported formats: PDF, DOCX, DOC, TXT");
+    // Caller holds the partition's write lock. Returns false for empty or duplicate text.
+    private boolean addToPartition(DocumentPartition partition, DocumentInfo doc) {
+        String content = doc.getContent();
+        if (content == null || content.trim().isEmpty()) {
+            return false;
+        }
+        String textHash = ContentHasher.sha256(content);
+        if (partition.findByContentHash(textHash) != null) {
+            return false;
+        }
+        doc.setContentHash(textHash);
+        doc.setText(compactText(content));
+        partition.getDocuments().put(doc.getId(), doc);
+        partition.registerHash(textHash, doc.getId());
+        partition.getChunkIndex().addDocument(doc.getId(), content);
+        partition.getSearchIndex().addDocument(doc.getId(), content);
+        return true;
+    }
+
+    // Keep at most maxPartitions in memory; evicted sessions are reloaded from the shared store on next use
+    private void evictLeastRecentlyUsed(DocumentPartition keep) {
+        while (partitions.size() > maxPartitions) {
+            DocumentPartition oldest = null;
+            for (DocumentPartition candidate : partitions.values()) {
+                if (candidate != keep && !candidate.getWriteLock().isLocked()
+                        && (oldest == null || candidate.getLastAccessMillis() < oldest.getLastAccessMillis())) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null || !partitions.remove(oldest.getId(), oldest)) {
+                return;
+            }
+            log.info("Evicted least recently used document partition: {}", oldest.getId());
         }
     }
-}
 
     /**
-     * ✅ ENHANCED: PDFBox 3.x compatible PDF extraction with better error handling
+     * ✅ NEW: Drop partitions of sessions that have been idle longer than the TTL, so abandoned
+     * sessions do not pin their documents in memory for the life of the instance.
      */
-    private String extractFromPDF(MultipartFile file, InputStream inputStream) throws Exception {
-        try {
-            byte[] pdfBytes = inputStream.readAllBytes();
-            PDDocument document = Loader.loadPDF(pdfBytes);
+    @Scheduled(fixedDelayString = "${document.partition.sweep-interval-ms:600000}",
+               initialDelayString = "${document.partition.sweep-interval-ms:600000}")
+    public void evictIdlePartitions() {
+        long cutoff = System.currentTimeMillis() - partitionIdleTtlMs;
+        for (String key : partitions.keySet()) {
+            DocumentPartition removed = partitions.computeIfPresent(key,
+                    (id, partition) -> partition.isIdleSince(cutoff) ? null : partition);
+            if (removed == null) {
+                log.info("Evicted idle document partition: {}", key);
+            }
+        }
+    }
+
+    /**
+     * ✅ ENHANCED: Pick the extractor from the file's magic bytes (the filename suffix alone is not trusted)
+     * and let it stream text from the staged file into a buffer that enforces the extraction budget.
+     * Extractors are looked up in the registry, so new formats do not need changes here.
+     */
+    private String extractTextFromFile(MultipartFile file, StagedUpload upload, ExtractionProgressListener progress,
+                                       ExtractionBudget budget, PartialDocumentPublisher partials) throws Exception {
+        String filename = file.getOriginalFilename();
+        if (filename == null) {
+            throw new IllegalArgumentException("File name is null");
+        }
 
-            if (document.isEncrypted()) {
-                document.close();
-                throw new Exception("PDF is encrypted and cannot be processed");
+        DocumentFormat format = upload.detectFormat(filename, file.getContentType());
+        DocumentExtractor extractor = extractorRegistry.forFormat(format);
+        if (extractor == null) {
+            throw new IllegalArgumentException("Unsupported file type: " + filename +
+                    ". Supported formats: " + extractorRegistry.getSupportedFormats());
+        }
+
+        // Page ends become form feeds when normalisation needs them to find repeated headers/footers
+        String pageSeparator = textNormalizer.isEnabled() ? String.valueOf(TextNormalizer.PAGE_BREAK) : "\n";
+        TextBuffer text = new TextBuffer(pageSeparator);
+        TextSink sink = budget.limit(partials != null ? partials.watch(text) : text);
+
+        // ✅ NEW: Reuse text extracted earlier from these exact bytes instead of re-running PDFBox/POI
+        String cacheKey = extractor.isCacheable() ? extractionCacheKey(upload.getSha256(), extractor, pageSeparator) : null;
+        if (cacheKey != null) {
+            String cachedText = extractedTextCache.get(cacheKey);
+            if (cachedText != null) {
+                log.debug("Extracted text cache hit: {} ({} chars)", filename, cachedText.length());
+                try {
+                    sink.text(cachedText);
+                } catch (ExtractionBudget.LimitExceededException e) {
+                    log.info("Cached text cut: {}", e.getMessage());
+                }
+                return text.toString();
             }
+        }
+
+        ExtractionRequest request = new ExtractionRequest(filename, format, upload.getPath(), file.getSize(), budget,
+                partials != null ? partials : progress);
+        try {
+            extractor.extract(request, sink);
+        } catch (ExtractionBudget.LimitExceededException e) {
+            log.info("{} extraction stopped early: {}", extractor.getName(), e.getMessage());
+        }
+        String content = text.toString();
+
+        // Partial text must not be served to later uploads of the same file
+        if (cacheKey != null && request.isCacheable() && !budget.isTruncated()) {
+            extractedTextCache.put(cacheKey, content);
+        }
+        return content;
+    }
 
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setSortByPosition(true);
-            String text = stripper.getText(document);
+    /**
+     * ✅ NEW: The upload hash plus everything that shapes the extracted text: the extractor and its version/settings,
+     * the page separator (which depends on normalisation) and the extraction limits. Entries written under
+     * other settings are simply never read again and age out of the LRU.
+     */
+    private String extractionCacheKey(String uploadHash, DocumentExtractor extractor, String pageSeparator) {
+        return ContentHasher.sha256(uploadHash
+                + "|" + extractor.getCacheVersion()
+                + "|pageSeparator=" + (int) pageSeparator.charAt(0)
+                + "|maxChars=" + extractionMaxChars
+                + "|maxPages=" + extractionMaxPages);
+    }
 
-            System.out.println("📄 PDF Processing Results:");
-            System.out.println("- File: " + file.getOriginalFilename());
-            System.out.println("- Pages: " + document.getNumberOfPages());
-            System.out.println("- Encrypted: " + document.isEncrypted());
-            System.out.println("- Extracted characters: " + text.length());
+    /**
+     * ✅ NEW: Makes a document queryable while it is still being extracted. As page ends stream past, the
+     * text so far is normalised, indexed and stored under a versioned id (documentId~pages), after 10, 20,
+     * 40, ... pages; each version replaces the previous one, and the complete document replaces the last.
+     * Doubling the batch keeps the re-indexing work proportional to the document size.
+     *
+     * Published pages are only held in this instance's partition, not in the shared store.
+     */
+    private final class PartialDocumentPublisher implements ExtractionProgressListener {
+        private final DocumentPartition partition;
+        private final String documentId;
+        private final String filename;
+        private final long fileSize;
+        private final ExtractionProgressListener progress;
+        private volatile int totalPages = 0;
+        private int pagesSeen = 0;
+        private int nextPublishAt = Math.max(1, progressiveFirstBatchPages);
+        private String publishedId;
+
+        PartialDocumentPublisher(DocumentPartition partition, String documentId, String filename, long fileSize,
+                                 ExtractionProgressListener progress) {
+            this.partition = partition;
+            this.documentId = documentId;
+            this.filename = filename;
+            this.fileSize = fileSize;
+            this.progress = progress;
+        }
 
-            // Important: Close the document to free memory
-            document.close();
+        @Override
+        public void onPagesExtracted(int pagesProcessed, int totalPages) {
+            this.totalPages = totalPages;
+            progress.onPagesExtracted(pagesProcessed, totalPages);
+        }
 
-            if (text.trim().length() < 50) {
-                System.out.println("⚠️ Very little text extracted from PDF - might be image-based");
-                return enhanceShortContent(file.getOriginalFilename(), text, file.getSize());
+        // Page ends reach the buffer in page order, also when slices are extracted in parallel
+        TextSink watch(TextBuffer buffer) {
+            return new TextSink() {
+                @Override
+                public void text(CharSequence text) {
+                    buffer.text(text);
+                }
+
+                @Override
+                public void text(char[] chars, int start, int length) {
+                    buffer.text(chars, start, length);
+                }
+
+                @Override
+                public void endParagraph() {
+                    buffer.endParagraph();
+                }
+
+                @Override
+                public void endPage(int pageNumber) {
+                    buffer.endPage(pageNumber);
+                    pagesSeen++;
+                    if (pagesSeen >= nextPublishAt && (totalPages == 0 || pagesSeen < totalPages)) {
+                        publish(buffer.toString());
+                        nextPublishAt = pagesSeen * 2;
+                    }
+                }
+            };
+        }
+
+        private void publish(String rawText) {
+            String content = rawText;
+            if (textNormalizer.isEnabled()) {
+                String normalized = textNormalizer.normalize(rawText).getText();
+                content = normalized.isBlank() ? rawText : normalized;
+            }
+            if (content.isBlank()) {
+                return;
+            }
+
+            String versionId = documentId + "~" + pagesSeen;
+            DocumentInfo partial = new DocumentInfo(versionId, filename, null, LocalDateTime.now(), fileSize);
+            // Superseded within seconds: kept on the heap, as appending each growing prefix to a mapped segment
+            // would store the file's text about twice over and pin the segments
+            partial.setText(heapText(content));
+            partial.setPagesReady(pagesSeen);
+            partial.setTotalPages(totalPages > 0 ? totalPages : null);
+
+            // Indexed before it is visible; readers skip index hits for documents not (or no longer) stored
+            partition.getChunkIndex().addDocument(versionId, content);
+            partition.getSearchIndex().addDocument(versionId, content);
+            partition.getWriteLock().lock();
+            try {
+                partition.getDocuments().put(versionId, partial);
+                if (publishedId != null) {
+                    partition.removeDocument(publishedId);
+                }
+                publishedId = versionId;
+            } finally {
+                partition.getWriteLock().unlock();
             }
+            partition.touch();
 
-            return text;
+            log.info("Published first {}{} pages of {} (partition {})", pagesSeen, totalPages > 0 ? " of " + totalPages : "",
+                    filename, partition.getId());
+            progress.onPagesReady(pagesSeen, totalPages);
+        }
 
-        } catch (Exception e) {
-            System.err.println("❌ PDF extraction failed: " + e.getMessage());
-            // Return enhanced error content instead of throwing
-            return enhanceShortContent(file.getOriginalFilename(),
-                    "PDF text extraction encountered issues: " + e.getMessage(),
-                    file.getSize());
+        void discard() {
+            if (publishedId == null) {
+                return;
+            }
+            partition.getWriteLock().lock();
+            try {
+                partition.removeDocument(publishedId);
+                publishedId = null;
+            } finally {
+                partition.getWriteLock().unlock();
+            }
         }
     }
 
-    private String extractFromDOCX(MultipartFile file, InputStream inputStream) throws Exception {
-        try (XWPFDocument document = new XWPFDocument(inputStream);
-             XWPFWordExtractor extractor = new XWPFWordExtractor(document)) {
-            String text = extractor.getText();
-            System.out.println("📝 DOCX extracted " + text.length() + " characters from: " + file.getOriginalFilename());
-            return text;
+    // Tells the model that a document's text stops early because the rest is still being extracted
+    private static String ingestionNote(DocumentInfo doc) {
+        if (!doc.isPartial()) {
+            return "";
         }
+        return "Status: STILL BEING INGESTED - only the first " + doc.getPagesReady() +
+                (doc.getTotalPages() != null ? " of " + doc.getTotalPages() : "") + " pages are available\n\n";
     }
 
-    private String extractFromDOC(MultipartFile file, InputStream inputStream) throws Exception {
-        try (HWPFDocument document = new HWPFDocument(inputStream);
-             WordExtractor extractor = new WordExtractor(document)) {
-            String text = extractor.getText();
-            System.out.println("📝 DOC extracted " + text.length() + " characters from: " + file.getOriginalFilename());
-            return text;
+    /**
+     * ✅ NEW: Identifies the exact set of documents an answer is built from: file names and text hashes, in a
+     * stable order. Two sessions holding the same files get the same fingerprint; published pages of a
+     * document still being ingested count by version, so the fingerprint changes as pages arrive.
+     */
+    public String getDocumentSetFingerprint(String sessionId) {
+        List<String> entries = new ArrayList<>();
+        for (DocumentInfo doc : partition(sessionId).getDocuments().values()) {
+            String text = doc.getContentHash() != null ? doc.getContentHash() : doc.getId();
+            entries.add(doc.getFilename() + "\u0000" + text + "\u0000" + doc.getContentLength());
         }
+        if (entries.isEmpty()) {
+            return null;
+        }
+        entries.sort(null);
+        return ContentHasher.sha256(String.join("\n", entries));
     }
 
-    private String extractFromTXT(MultipartFile file) throws Exception {
-        String text = new String(file.getBytes(), "UTF-8");
-        System.out.println("📄 TXT extracted " + text.length() + " characters from: " + file.getOriginalFilename());
-        return text;
+    /**
+     * ✅ NEW: Documents of the session that are still being ingested, with how many pages can be queried
+     */
+    public List<Map<String, Object>> getIngestingDocuments(String sessionId) {
+        List<Map<String, Object>> ingesting = new ArrayList<>();
+        for (DocumentInfo doc : partition(sessionId).getDocuments().values()) {
+            if (doc.isPartial()) {
+                Map<String, Object> status = new LinkedHashMap<>();
+                status.put("filename", doc.getFilename());
+                status.put("pagesReady", doc.getPagesReady());
+                status.put("totalPages", doc.getTotalPages());
+                ingesting.add(status);
+            }
+        }
+        return ingesting;
     }
 
     /**
      * ✅ ENHANCED: Get combined content from all documents for AI analysis
      */
-    public String getAllDocumentsContentEnhanced() {
-        System.out.println("=== GET ALL DOCUMENTS DEBUG ===");
-        System.out.println("Storage state: " + documentStorage);
-        System.out.println("Document count: " + documentStorage.size());
-
+    public String getAllDocumentsContentEnhanced(String sessionId) {
+        Map<String, DocumentInfo> documentStorage = partition(sessionId).getDocuments();
         if (documentStorage.isEmpty()) {
-            System.out.println("⚠️ No documents in storage");
+            log.debug("No documents in storage");
             return null;
         }
 
@@ -242,8 +658,6 @@ private String extractTextFromFile(MultipartFile file) throws Exception {
 
         int docCount = 1;
         for (DocumentInfo doc : documentStorage.values()) {
-            System.out.println("=== COMBINING DOCUMENT " + docCount + ": " + doc.getFilename() + " ===");
-
             // ✅ ENHANCED: Add document metadata
             String docHeader = String.format(
                     "=== DOCUMENT %d: %s ===\n" +
@@ -256,104 +670,263 @@ private String extractTextFromFile(MultipartFile file) throws Exception {
                     doc.getFileType() != null ? doc.getFileType() : "Unknown",
                     doc.getFileSize() != null ? doc.getFileSize() : 0,
                     doc.getUploadTime() != null ? doc.getUploadTime().toString() : "Unknown",
-                    doc.getContent() != null ? doc.getContent().length() : 0
+                    doc.getContentLength()
             );
 
             String docFooter = String.format("\n=== END OF DOCUMENT %d ===\n\n", docCount);
 
-            combinedContent.append(docHeader);
-            combinedContent.append(doc.getContent() != null ? doc.getContent() : "No content available");
+            combinedContent.append(docHeader).append(ingestionNote(doc));
+            if (doc.getText() != null) {
+                doc.appendContent(combinedContent, 0, doc.getContentLength());
+            } else {
+                combinedContent.append("No content available");
+            }
             combinedContent.append(docFooter);
             docCount++;
         }
 
         String finalContent = combinedContent.toString();
-        System.out.println("=== FINAL COMBINED CONTENT ===");
-        System.out.println("Total documents: " + documentStorage.size());
-        System.out.println("Combined length: " + finalContent.length() + " characters");
+        log.info(LogMarkers.VERBOSE, "Combined {} documents into {} characters", documentStorage.size(), finalContent.length());
         return finalContent;
     }
 
+    /**
+     * ✅ NEW: Build the AI context from the chunks most relevant to the question.
+     * Small corpora that already fit in the budget are sent whole, exactly as before.
+     */
+    public String getRelevantDocumentsContent(String sessionId, String question) {
+        DocumentPartition partition = partition(sessionId);
+        Map<String, DocumentInfo> documentStorage = partition.getDocuments();
+        DocumentChunkIndex chunkIndex = partition.getChunkIndex();
+        if (documentStorage.isEmpty()) {
+            log.debug("No documents in storage");
+            return null;
+        }
+
+        long totalChars = documentStorage.values().stream()
+                .mapToLong(DocumentInfo::getContentLength)
+                .sum();
+        if (!retrievalEnabled || totalChars <= maxContextChars) {
+            return getAllDocumentsContentEnhanced(sessionId);
+        }
+
+        List<ScoredChunk> candidates = chunkIndex.search(question, retrievalTopK);
+        String retrievalMode = "BM25";
+        if (candidates.isEmpty()) {
+            candidates = chunkIndex.leadingChunks(retrievalTopK);
+            retrievalMode = "LEADING_CHUNKS";
+        }
+
+        // Take chunks best-first until the character budget is spent
+        List<ScoredChunk> selected = new ArrayList<>();
+        int usedChars = 0;
+        for (ScoredChunk chunk : candidates) {
+            if (usedChars + chunk.length() > maxContextChars && !selected.isEmpty()) {
+                continue;
+            }
+            selected.add(chunk);
+            usedChars += chunk.length();
+        }
+
+        // Present excerpts grouped per document and in reading order
+        Map<String, List<ScoredChunk>> byDocument = new LinkedHashMap<>();
+        for (DocumentInfo doc : documentStorage.values()) {
+            byDocument.put(doc.getId(), new ArrayList<>());
+        }
+        for (ScoredChunk chunk : selected) {
+            byDocument.computeIfAbsent(chunk.getDocumentId(), id -> new ArrayList<>()).add(chunk);
+        }
+
+        StringBuilder combinedContent = new StringBuilder();
+        combinedContent.append("=== MULTI-DOCUMENT ANALYSIS (RELEVANT EXCERPTS) ===\n");
+        combinedContent.append("Total Documents: ").append(documentStorage.size()).append("\n");
+        combinedContent.append("Excerpts Included: ").append(selected.size()).append("\n");
+        combinedContent.append("Analysis Timestamp: ").append(LocalDateTime.now()).append("\n\n");
+
+        int docCount = 1;
+        for (Map.Entry<String, List<ScoredChunk>> entry : byDocument.entrySet()) {
+            DocumentInfo doc = documentStorage.get(entry.getKey());
+            List<ScoredChunk> chunks = entry.getValue();
+            if (doc == null || doc.getText() == null || chunks.isEmpty()) {
+                continue;
+            }
+            chunks.sort(Comparator.comparingInt(ScoredChunk::getStart));
+
+            combinedContent.append(String.format("=== DOCUMENT %d: %s ===\n", docCount, doc.getFilename()));
+            combinedContent.append("File Type: ").append(doc.getFileType() != null ? doc.getFileType() : "Unknown").append("\n");
+            combinedContent.append("Content Length: ").append(doc.getContentLength()).append(" characters\n");
+            combinedContent.append(ingestionNote(doc)).append("\n");
+            for (ScoredChunk chunk : chunks) {
+                combinedContent.append("--- Excerpt (characters ").append(chunk.getStart())
+                        .append("-").append(chunk.getEnd()).append(") ---\n");
+                doc.appendContent(combinedContent, chunk.getStart(), chunk.getEnd());
+                combinedContent.append("\n\n");
+            }
+            combinedContent.append(String.format("=== END OF DOCUMENT %d ===\n\n", docCount));
+            docCount++;
+        }
+
+        log.info(LogMarkers.VERBOSE, "Relevant content retrieval: mode {}, {}/{} chunks, {} of {} characters", retrievalMode,
+                selected.size(), chunkIndex.size(), combinedContent.length(), totalChars);
+        return combinedContent.toString();
+    }
+
+    /**
+     * ✅ NEW: Ranked full-text search over all stored documents with per-document hit counts and snippets
+     */
+    public List<SearchHit> searchDocuments(String sessionId, String query, int maxResults, int snippetsPerDocument) {
+        DocumentPartition partition = partition(sessionId);
+        List<SearchHit> results = new ArrayList<>();
+        for (DocumentSearchIndex.DocumentHits hits : partition.getSearchIndex().search(query, maxResults)) {
+            DocumentInfo doc = partition.getDocuments().get(hits.getDocumentId());
+            if (doc == null || doc.getText() == null) {
+                continue;
+            }
+            results.add(new SearchHit(doc.getId(), doc.getFilename(), hits.getScore(), hits.getHitCount(),
+                    new ArrayList<>(hits.getMatchedTerms()),
+                    buildSnippets(doc.getText(), hits.getHitOffsets(), snippetsPerDocument)));
+        }
+        return results;
+    }
+
+    private List<Snippet> buildSnippets(CharSequence content, List<int[]> hitOffsets, int maxSnippets) {
+        final int context = 80;
+        List<Snippet> snippets = new ArrayList<>();
+        Snippet current = null;
+
+        for (int[] hit : hitOffsets) {
+            if (current != null && hit[0] < current.getEnd()) {
+                current.extend(content, hit, context);
+                continue;
+            }
+            if (snippets.size() >= maxSnippets) {
+                break;
+            }
+            current = new Snippet(content, hit, context);
+            snippets.add(current);
+        }
+        snippets.forEach(snippet -> snippet.finish(content));
+        return snippets;
+    }
+
     // Legacy method for backward compatibility
-    public String getAllDocumentsContent() {
-        return getAllDocumentsContentEnhanced();
+    public String getAllDocumentsContent(String sessionId) {
+        return getAllDocumentsContentEnhanced(sessionId);
     }
 
     /**
      * ✅ ENHANCED: Clear all documents with detailed logging
      */
-    public synchronized void clearAllDocuments() {
+    public void clearAllDocuments(String sessionId) {
+        DocumentPartition partition = partition(sessionId, false);
+        Map<String, DocumentInfo> documentStorage = partition.getDocuments();
+        partition.getWriteLock().lock();
         try {
-            System.out.println("=== CLEAR DOCUMENTS DEBUG ===");
-            System.out.println("Service instance: " + this);
-            System.out.println("Documents before clear: " + documentStorage.size());
-            System.out.println("Storage object: " + documentStorage);
-
-            if (documentStorage != null) {
-                documentStorage.clear();
-                System.out.println("✅ Clear completed successfully");
-            } else {
-                System.err.println("❌ Document storage is null during clear!");
-            }
+            int before = documentStorage.size();
 
-            System.out.println("Documents after clear: " + documentStorage.size());
+            partition.clear();
+            deleteFromSharedStore(partition);
+            partition.markSynced();
 
             // Verify clear worked
             if (documentStorage.size() == 0) {
-                System.out.println("✅ Clear verification passed");
+                log.info("Cleared {} documents from partition {}", before, partition.getId());
             } else {
-                System.err.println("❌ Clear verification failed! Still have " + documentStorage.size() + " documents");
+                log.error("Clear verification failed! Still have {} documents", documentStorage.size());
             }
 
         } catch (Exception e) {
-            System.err.println("❌ Error clearing documents: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error clearing documents: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to clear documents: " + e.getMessage());
+        } finally {
+            partition.getWriteLock().unlock();
         }
     }
-    public synchronized void ensureDocumentPersistence() {
-        System.out.println("=== DOCUMENT PERSISTENCE CHECK ===");
-        System.out.println("Current storage size: " + documentStorage.size());
-        System.out.println("Storage object ID: " + System.identityHashCode(documentStorage));
-
+    public void ensureDocumentPersistence(String sessionId) {
+        DocumentPartition partition = partition(sessionId);
+        Map<String, DocumentInfo> documentStorage = partition.getDocuments();
         if (documentStorage.isEmpty()) {
-            System.err.println("❌ WARNING: Document storage is empty!");
-        } else {
-            documentStorage.forEach((id, doc) -> {
-                System.out.println("✅ Document stored: " + doc.getFilename() + " (" +
-                        (doc.getContent() != null ? doc.getContent().length() : 0) + " chars)");
-            });
+            log.warn("Document storage of partition {} is empty", partition.getId());
+        } else if (log.isDebugEnabled()) {
+            documentStorage.forEach((id, doc) ->
+                    log.debug("Document stored: {} ({} chars)", doc.getFilename(), doc.getContentLength()));
         }
     }
 
     /**
      * ✅ ENHANCED: Get document count with error handling
      */
-    public int getDocumentCount() {
+    public int getDocumentCount(String sessionId) {
         try {
-            int count = documentStorage.size();
-            System.out.println("Document count requested: " + count);
+            int count = partition(sessionId).getDocuments().size();
             return count;
         } catch (Exception e) {
-            System.err.println("Error getting document count: " + e.getMessage());
+            log.warn("Error getting document count: {}", e.getMessage());
             return 0;
         }
     }
 
 
 
+    public Map<String, Object> getTextCacheStats() {
+        return extractedTextCache.getStats();
+    }
+
+    // ✅ NEW: How much heap the stored document text takes (compressed, plain Strings or mapped off-heap)
+    public Map<String, Object> getStorageStats() {
+        long documents = 0;
+        long characters = 0;
+        long storedBytes = 0;
+        for (DocumentPartition partition : partitions.values()) {
+            for (DocumentInfo doc : partition.getDocuments().values()) {
+                documents++;
+                characters += doc.getContentLength();
+                if (doc.getText() instanceof CompressedText compressed) {
+                    storedBytes += compressed.getCompressedBytes();
+                } else if (!(doc.getText() instanceof MappedText)) {
+                    storedBytes += 2L * doc.getContentLength();
+                }
+            }
+        }
+        return Map.of(
+                "partitions", partitions.size(),
+                "documents", documents,
+                "characters", characters,
+                "storedBytes", storedBytes,
+                "compressionEnabled", textCompressionEnabled,
+                "sharedStore", documentStore != null ? documentStore.getClass().getSimpleName() : "none",
+                "mappedSegments", mappedSegmentStore.getStats(),
+                "normalizationCharactersSaved", normalizationCharactersSaved.get(),
+                "normalizationEstimatedTokensSaved", TextNormalizer.estimateTokens(normalizationCharactersSaved.get())
+        );
+    }
+
+    private CharSequence compactText(String content) {
+        if (mappedSegmentStore.isEnabled()) {
+            try {
+                return mappedSegmentStore.append(content);
+            } catch (RuntimeException e) {
+                log.warn("Could not map document text, keeping it on the heap: {}", e.getMessage());
+            }
+        }
+        return heapText(content);
+    }
+
+    private CharSequence heapText(String content) {
+        return textCompressionEnabled ? CompressedText.compress(content) : content;
+    }
+
     /**
      * ✅ ENHANCED: Get document names with error handling
      */
-    public List<String> getDocumentNames() {
+    public List<String> getDocumentNames(String sessionId) {
         try {
-            List<String> names = documentStorage.values().stream()
+            List<String> names = partition(sessionId).getDocuments().values().stream()
                     .map(DocumentInfo::getFilename)
                     .toList();
-            System.out.println("Document names requested: " + names);
             return names;
         } catch (Exception e) {
-            System.err.println("Error getting document names: " + e.getMessage());
+            log.warn("Error getting document names: {}", e.getMessage());
             return List.of();
         }
     }
@@ -361,32 +934,40 @@ private String extractTextFromFile(MultipartFile file) throws Exception {
     /**
      * ✅ NEW: Restore documents from session data to local storage
      */
-    public void restoreDocumentsFromSession(List<DocumentInfo> sessionDocuments) {
+    public void restoreDocumentsFromSession(String sessionId, List<DocumentInfo> sessionDocuments) {
+        DocumentPartition partition = partition(sessionId, false);
+        Map<String, DocumentInfo> documentStorage = partition.getDocuments();
+        partition.getWriteLock().lock();
         try {
-            System.out.println("=== RESTORING DOCUMENTS TO STORAGE ===");
-            documentStorage.clear(); // Clear current storage
+            partition.clear(); // Clear current storage
+            deleteFromSharedStore(partition);
 
             for (DocumentInfo doc : sessionDocuments) {
-                if (doc.getContent() != null && !doc.getContent().trim().isEmpty()) {
-                    documentStorage.put(doc.getId(), doc);
-                    System.out.println("✅ Restored to storage: " + doc.getFilename() + " (" + doc.getContent().length() + " chars)");
+                if (addToPartition(partition, doc)) {
+                    saveToSharedStore(partition, doc);
+                    log.debug("Restored to storage: {} ({} chars)", doc.getFilename(), doc.getContentLength());
                 } else {
-                    System.out.println("⚠️ Skipping document with no content: " + doc.getFilename());
+                    log.warn("Skipping empty or duplicate document: {}", doc.getFilename());
                 }
             }
+            partition.markSynced();
 
-            System.out.println("✅ Document storage restored: " + documentStorage.size() + " documents");
+            log.info("Document storage restored: {} documents (partition {})", documentStorage.size(), partition.getId());
         } catch (Exception e) {
-            System.err.println("❌ Error restoring documents: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error restoring documents: {}", e.getMessage(), e);
+        } finally {
+            partition.getWriteLock().unlock();
         }
     }
 
     /**
      * ✅ NEW: Get documents as list for session operations
      */
-    public List<DocumentInfo> getAllDocumentsAsList() {
-        return new ArrayList<>(documentStorage.values());
+    public List<DocumentInfo> getAllDocumentsAsList(String sessionId) {
+        // Partially ingested documents are left out of saved sessions
+        return partition(sessionId).getDocuments().values().stream()
+                .filter(doc -> !doc.isPartial())
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
     // ✅ ENHANCED: MongoDB Document Model for DocumentInfo
@@ -395,11 +976,20 @@ private String extractTextFromFile(MultipartFile file) throws Exception {
         @Id
         private String id;
         private String filename;
-        private String content;
+        // ✅ NEW: Plain String, or CompressedText once the document is held in storage
+        @Transient
+        private CharSequence content;
         private LocalDateTime uploadTime;
         private Long fileSize;
         private String fileType;
         private String documentId; // For session compatibility
+        private String contentHash; // SHA-256 of the extracted text
+        private String truncationReason; // set when extraction hit a time/size limit and only part of the text was kept
+        // ✅ NEW: Set while the document is still being ingested and only its first pages are stored
+        @Transient
+        private Integer pagesReady;
+        @Transient
+        private Integer totalPages;
 
         public DocumentInfo() {}
 
@@ -430,9 +1020,26 @@ private String extractTextFromFile(MultipartFile file) throws Exception {
         public String getFilename() { return filename; }
         public void setFilename(String filename) { this.filename = filename; }
 
-        public String getContent() { return content; }
+        public String getContent() { return content != null ? content.toString() : null; }
         public void setContent(String content) { this.content = content; }
 
+        // ✅ NEW: Stored text without materialising it; use appendContent/length instead of getContent() on hot paths
+        @JsonIgnore
+        public CharSequence getText() { return content; }
+        public void setText(CharSequence content) { this.content = content; }
+
+        public int getContentLength() { return content != null ? content.length() : 0; }
+
+        public void appendContent(StringBuilder target, int start, int end) {
+            if (content instanceof CompressedText compressed) {
+                compressed.appendTo(target, start, end);
+            } else if (content instanceof MappedText mapped) {
+                mapped.appendTo(target, start, end);
+            } else {
+                target.append(content, start, end);
+            }
+        }
+
         public LocalDateTime getUploadTime() { return uploadTime; }
         public void setUploadTime(LocalDateTime uploadTime) { this.uploadTime = uploadTime; }
 
@@ -441,5 +1048,122 @@ private String extractTextFromFile(MultipartFile file) throws Exception {
 
         public String getFileType() { return fileType; }
         public void setFileType(String fileType) { this.fileType = fileType; }
+
+        public String getContentHash() { return contentHash; }
+        public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
+        public String getTruncationReason() { return truncationReason; }
+        public void setTruncationReason(String truncationReason) { this.truncationReason = truncationReason; }
+        public boolean isTruncated() { return truncationReason != null; }
+
+        public Integer getPagesReady() { return pagesReady; }
+        public void setPagesReady(Integer pagesReady) { this.pagesReady = pagesReady; }
+        public Integer getTotalPages() { return totalPages; }
+        public void setTotalPages(Integer totalPages) { this.totalPages = totalPages; }
+        @JsonIgnore
+        public boolean isPartial() { return pagesReady != null; }
+    }
+
+    // ✅ NEW: Result of storeDocument; duplicate uploads point at the already stored document
+    public static class StoredDocument {
+        private final DocumentInfo document;
+        private final boolean duplicate;
+        private final TextNormalizer.Result normalization; // null for duplicates or when normalisation is off
+
+        public StoredDocument(DocumentInfo document, boolean duplicate) {
+            this(document, duplicate, null);
+        }
+
+        public StoredDocument(DocumentInfo document, boolean duplicate, TextNormalizer.Result normalization) {
+            this.document = document;
+            this.duplicate = duplicate;
+            this.normalization = normalization;
+        }
+
+        public DocumentInfo getDocument() { return document; }
+        public boolean isDuplicate() { return duplicate; }
+        public TextNormalizer.Result getNormalization() { return normalization; }
+    }
+
+    // ✅ NEW: Search result for one document
+    public static class SearchHit {
+        private final String documentId;
+        private final String filename;
+        private final double score;
+        private final int hitCount;
+        private final List<String> matchedTerms;
+        private final List<Snippet> snippets;
+
+        public SearchHit(String documentId, String filename, double score, int hitCount,
+                         List<String> matchedTerms, List<Snippet> snippets) {
+            this.documentId = documentId;
+            this.filename = filename;
+            this.score = score;
+            this.hitCount = hitCount;
+            this.matchedTerms = matchedTerms;
+            this.snippets = snippets;
+        }
+
+        public String getDocumentId() { return documentId; }
+        public String getFilename() { return filename; }
+        public double getScore() { return score; }
+        public int getHitCount() { return hitCount; }
+        public List<String> getMatchedTerms() { return matchedTerms; }
+        public List<Snippet> getSnippets() { return snippets; }
+    }
+
+    // ✅ NEW: Text window around one or more hits; highlights are relative to the snippet text
+    public static class Snippet {
+        private int start;
+        private int end;
+        private String text;
+        private final List<int[]> highlights = new ArrayList<>();
+        private final List<int[]> absoluteHits = new ArrayList<>();
+
+        Snippet(CharSequence content, int[] hit, int context) {
+            this.start = Math.max(0, hit[0] - context);
+            while (start > 0 && !Character.isWhitespace(content.charAt(start - 1))) {
+                start--;
+            }
+            this.end = hit[1];
+            extend(content, hit, context);
+        }
+
+        void extend(CharSequence content, int[] hit, int context) {
+            absoluteHits.add(hit);
+            end = Math.min(content.length(), Math.max(end, hit[1] + context));
+            while (end < content.length() && !Character.isWhitespace(content.charAt(end))) {
+                end++;
+            }
+        }
+
+        void finish(CharSequence content) {
+            String raw = content.subSequence(start, end).toString();
+            text = raw.replaceAll("\\s+", " ");
+            // Map highlight offsets onto the whitespace-collapsed text
+            for (int[] hit : absoluteHits) {
+                int from = collapsedOffset(raw, hit[0] - start);
+                int to = collapsedOffset(raw, hit[1] - start);
+                highlights.add(new int[]{from, to});
+            }
+        }
+
+        private static int collapsedOffset(String raw, int rawOffset) {
+            int collapsed = 0;
+            boolean inWhitespace = false;
+            for (int i = 0; i < rawOffset && i < raw.length(); i++) {
+                boolean whitespace = Character.isWhitespace(raw.charAt(i));
+                if (!whitespace || !inWhitespace) {
+                    collapsed++;
+                }
+                inWhitespace = whitespace;
+            }
+            return collapsed;
+        }
+
+        public int getStart() { return start; }
+        public int getEnd() { return end; }
+        public String getText() { return text; }
+        public List<int[]> getHighlights() { return highlights; }
     }
 }
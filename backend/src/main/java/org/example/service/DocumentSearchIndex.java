@@ -0,0 +1,185 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Positional inverted index used by the server-side search endpoint.
+ * Keeps, per term and document, the character offsets of every occurrence so hits can be turned into snippets.
+ */
+public class DocumentSearchIndex {
+
+    private static final int MAX_HIT_OFFSETS_PER_DOCUMENT = 200;
+
+    // Sorted so the last query term can be prefix-expanded while the user is still typing
+    private final NavigableMap<String, Map<String, Occurrences>> termIndex = new TreeMap<>();
+    private final Set<String> documentIds = new LinkedHashSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void addDocument(String documentId, CharSequence content) {
+        if (content == null) {
+            return;
+        }
+
+        Map<String, Occurrences> documentTerms = new HashMap<>();
+        TextTokenizer.forEachToken(content, 0, content.length(),
+                (term, start, end) -> documentTerms.computeIfAbsent(term, t -> new Occurrences()).add(start, end));
+
+        lock.writeLock().lock();
+        try {
+            documentIds.add(documentId);
+            documentTerms.forEach((term, occurrences) -> {
+                occurrences.trim();
+                termIndex.computeIfAbsent(term, t -> new HashMap<>()).put(documentId, occurrences);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDocument(String documentId) {
+        lock.writeLock().lock();
+        try {
+            if (documentIds.remove(documentId)) {
+                termIndex.values().removeIf(postings -> postings.remove(documentId) != null && postings.isEmpty());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            termIndex.clear();
+            documentIds.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return termIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks documents by tf-idf over the query terms, boosting documents that match more of them.
+     * The last term also matches as a prefix when it has no exact entry.
+     */
+    public List<DocumentHits> search(String query, int maxDocuments) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        if (queryTerms.isEmpty() || maxDocuments <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = Math.max(1, documentIds.size());
+            Map<String, DocumentHits> hitsByDocument = new HashMap<>();
+
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                boolean lastTerm = i == queryTerms.size() - 1;
+
+                Map<String, Occurrences> postings = termIndex.get(term);
+                List<Map<String, Occurrences>> matched = new ArrayList<>();
+                if (postings != null) {
+                    matched.add(postings);
+                } else if (lastTerm && term.length() >= 2) {
+                    matched.addAll(termIndex.subMap(term, true, term + Character.MAX_VALUE, false).values());
+                }
+
+                for (Map<String, Occurrences> termPostings : matched) {
+                    double idf = Math.log(1.0 + (double) documentCount / termPostings.size());
+                    termPostings.forEach((documentId, occurrences) -> {
+                        DocumentHits hits = hitsByDocument.computeIfAbsent(documentId, DocumentHits::new);
+                        hits.addTerm(term, occurrences, idf);
+                    });
+                }
+            }
+
+            List<DocumentHits> ranked = new ArrayList<>(hitsByDocument.values());
+            for (DocumentHits hits : ranked) {
+                hits.finish(queryTerms.size());
+            }
+            ranked.sort(Comparator.comparingDouble(DocumentHits::getScore).reversed());
+            return ranked.size() > maxDocuments ? ranked.subList(0, maxDocuments) : ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Growable list of [start, end) character offsets for one term in one document.
+     */
+    private static final class Occurrences {
+        private int[] offsets = new int[4];
+        private int size = 0;
+
+        void add(int start, int end) {
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[size++] = start;
+            offsets[size++] = end;
+        }
+
+        void trim() {
+            offsets = Arrays.copyOf(offsets, size);
+        }
+
+        int count() {
+            return size / 2;
+        }
+    }
+
+    /**
+     * Search outcome for one document: score, total hit count and the offsets of (up to) the first hits.
+     */
+    public static class DocumentHits {
+        private final String documentId;
+        private final Set<String> matchedTerms = new LinkedHashSet<>();
+        private final List<int[]> hitOffsets = new ArrayList<>();
+        private int hitCount = 0;
+        private double score = 0.0;
+
+        DocumentHits(String documentId) {
+            this.documentId = documentId;
+        }
+
+        void addTerm(String term, Occurrences occurrences, double idf) {
+            matchedTerms.add(term);
+            hitCount += occurrences.count();
+            score += (1.0 + Math.log(occurrences.count())) * idf;
+            for (int i = 0; i < occurrences.size && hitOffsets.size() < MAX_HIT_OFFSETS_PER_DOCUMENT; i += 2) {
+                hitOffsets.add(new int[]{occurrences.offsets[i], occurrences.offsets[i + 1]});
+            }
+        }
+
+        void finish(int queryTermCount) {
+            score *= (double) matchedTerms.size() / queryTermCount;
+            hitOffsets.sort(Comparator.comparingInt(offset -> offset[0]));
+        }
+
+        public String getDocumentId() { return documentId; }
+        public Set<String> getMatchedTerms() { return matchedTerms; }
+        public List<int[]> getHitOffsets() { return hitOffsets; }
+        public int getHitCount() { return hitCount; }
+        public double getScore() { return score; }
+    }
+}
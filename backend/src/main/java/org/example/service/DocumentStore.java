@@ -0,0 +1,23 @@
+package org.example.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.example.service.DocumentProcessingService.DocumentInfo;
+
+/**
+ * Shared tier behind the in-memory document partitions. Every stored document is written through to
+ * it, and an instance that has not seen a session yet (or has evicted it) fills the partition from here
+ * instead of asking the user to upload again.
+ */
+public interface DocumentStore {
+
+    void save(String partitionId, DocumentInfo document);
+
+    Set<String> listDocumentIds(String partitionId);
+
+    List<DocumentInfo> load(String partitionId, Collection<String> documentIds);
+
+    void deletePartition(String partitionId);
+}
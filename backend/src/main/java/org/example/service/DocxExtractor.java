@@ -0,0 +1,74 @@
+package org.example.service;
+
+import java.io.InterruptedIOException;
+import java.util.Set;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * DOCX body text, streamed out of the zip with StAX ({@link StreamingDocxExtractor}); the POI document
+ * model is only built for files the streaming reader cannot handle.
+ */
+@Component
+public class DocxExtractor implements DocumentExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(DocxExtractor.class);
+
+    @Value("${document.docx.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Override
+    public String getName() {
+        return "DOCX";
+    }
+
+    @Override
+    public Set<DocumentFormat> getFormats() {
+        return Set.of(DocumentFormat.DOCX);
+    }
+
+    @Override
+    public String getCacheVersion() {
+        return "DOCX/1/streaming=" + streamingEnabled;
+    }
+
+    @Override
+    public void extract(ExtractionRequest request, TextSink sink) throws Exception {
+        String filename = request.getFilename();
+        if (streamingEnabled) {
+            CountingTextSink counted = new CountingTextSink(sink);
+            try {
+                StreamingDocxExtractor.extract(request.getPath(), counted);
+                if (counted.getVisibleCharacters() > 0) {
+                    log.info("DOCX streamed {} characters from {}", counted.getCharacters(), filename);
+                    return;
+                }
+                log.info("Streaming DOCX reader found no text, falling back to POI: {}", filename);
+            } catch (ExtractionBudget.LimitExceededException | InterruptedIOException e) {
+                throw e;
+            } catch (Exception e) {
+                if (counted.getVisibleCharacters() > 0) {
+                    throw e; // part of the body already reached the sink; POI would repeat it
+                }
+                log.warn("Streaming DOCX reader failed ({}), falling back to POI: {}", e.getMessage(), filename);
+            }
+        }
+
+        // Opened from the file (read-only) so POI reads zip entries in place instead of buffering the stream.
+        // POI cannot be stopped midway, so the budget only applies once its text reaches the sink.
+        request.getBudget().checkDeadline();
+        try (XWPFDocument document = new XWPFDocument(OPCPackage.open(request.getPath().toFile(), PackageAccess.READ));
+             XWPFWordExtractor extractor = new XWPFWordExtractor(document)) {
+            String text = extractor.getText();
+            log.info("DOCX extracted {} characters from {}", text.length(), filename);
+            sink.text(text);
+        }
+    }
+}
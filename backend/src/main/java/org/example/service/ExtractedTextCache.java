@@ -0,0 +1,198 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Disk-backed cache of extracted document text, keyed by a hash of the uploaded bytes' SHA-256 together
+ * with the extractor version and settings that shaped the text (see DocumentProcessingService).
+ * Entries are evicted least-recently-used once the total size exceeds the configured cap;
+ * recency is persisted through file modification times so it survives instance restarts.
+ */
+@Service
+public class ExtractedTextCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ExtractedTextCache.class);
+
+    private static final String SUFFIX = ".txt";
+
+    @Value("${document.text-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${document.text-cache.dir:${java.io.tmpdir}/extracted-text-cache}")
+    private String cacheDir;
+
+    @Value("${document.text-cache.max-bytes:268435456}")
+    private long maxBytes;
+
+    // hash -> file size, in access order (eldest = least recently used)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private boolean loaded = false;
+    private long hits = 0;
+    private long misses = 0;
+
+    public String get(String contentHash) {
+        if (!enabled || contentHash == null) {
+            return null;
+        }
+
+        Path file;
+        synchronized (this) {
+            ensureLoaded();
+            if (entries.get(contentHash) == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            file = entryPath(contentHash);
+        }
+
+        try {
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return text;
+        } catch (IOException e) {
+            log.warn("Extracted text cache entry unreadable, dropping {}: {}", contentHash, e.getMessage());
+            remove(contentHash);
+            return null;
+        }
+    }
+
+    public void put(String contentHash, String text) {
+        if (!enabled || contentHash == null || text == null) {
+            return;
+        }
+
+        Path target = entryPath(contentHash);
+        Path temp = null;
+        try {
+            synchronized (this) {
+                ensureLoaded();
+                if (entries.containsKey(contentHash)) {
+                    return;
+                }
+            }
+
+            // Write to a temp file and move it into place so readers never see a partial entry
+            temp = Files.createTempFile(Path.of(cacheDir), contentHash, ".tmp");
+            Files.writeString(temp, text, StandardCharsets.UTF_8);
+            long size = Files.size(temp);
+            if (size > maxBytes) {
+                return;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                Long previous = entries.put(contentHash, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evictIfNeeded();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not write extracted text cache entry: {}", e.getMessage());
+        } finally {
+            // Gone after a successful move; otherwise nothing would ever clean it up (only *.txt is indexed)
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Best effort
+                }
+            }
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        ensureLoaded();
+        return Map.of(
+                "enabled", enabled,
+                "entries", entries.size(),
+                "totalBytes", totalBytes,
+                "maxBytes", maxBytes,
+                "hits", hits,
+                "misses", misses
+        );
+    }
+
+    private synchronized void remove(String contentHash) {
+        Long size = entries.remove(contentHash);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(entryPath(contentHash));
+        } catch (IOException ignored) {
+            // Best effort; the entry is already gone from the index
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            try {
+                Files.deleteIfExists(entryPath(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("Could not evict cache entry {}: {}", eldest.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    // Rebuild the LRU order from what a previous run (or warm instance) left on disk
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            Path dir = Files.createDirectories(Path.of(cacheDir));
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparingLong(ExtractedTextCache::lastModified))
+                        .toList();
+            }
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                long size = Files.size(path);
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                totalBytes += size;
+            }
+            evictIfNeeded();
+            log.info("Extracted text cache ready: {} entries, {} bytes in {}", entries.size(), totalBytes, dir);
+        } catch (IOException e) {
+            log.warn("Extracted text cache disabled: {}", e.getMessage());
+            enabled = false;
+        }
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path entryPath(String contentHash) {
+        return Path.of(cacheDir, contentHash + SUFFIX);
+    }
+}
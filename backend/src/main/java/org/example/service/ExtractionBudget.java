@@ -0,0 +1,167 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits for extracting one file: a wall-clock deadline and caps on extracted characters and pages.
+ * Extractors check it cooperatively (per page, and on every event written to a {@link #limit limited}
+ * sink) and stop as soon as a limit is hit; the text extracted up to that point is kept and the document
+ * is marked truncated. A budget may be shared by several threads extracting slices of the same file.
+ *
+ * A thread interrupt (e.g. the upload batch deadline cancelling the file) is a cancellation, not a
+ * truncation, and surfaces as an {@link InterruptedIOException}.
+ */
+public final class ExtractionBudget {
+
+    private final long deadlineNanos;
+    private final long timeoutMs;
+    private final long maxChars;
+    private final int maxPages;
+    private final ExtractionBudget parent; // set for slice budgets
+    private final AtomicLong charsWritten = new AtomicLong();
+    private volatile String truncationReason;
+    private volatile boolean stopped; // time or character limit hit: every extractor using the budget stops
+
+    private ExtractionBudget(long timeoutMs, long deadlineNanos, long maxChars, int maxPages, ExtractionBudget parent) {
+        this.timeoutMs = timeoutMs;
+        this.deadlineNanos = deadlineNanos;
+        this.maxChars = maxChars;
+        this.maxPages = maxPages;
+        this.parent = parent;
+    }
+
+    // Zero or negative values disable the corresponding limit
+    public static ExtractionBudget start(long timeoutMs, long maxChars, int maxPages) {
+        return new ExtractionBudget(timeoutMs,
+                timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : Long.MAX_VALUE,
+                maxChars > 0 ? maxChars : Long.MAX_VALUE, maxPages, null);
+    }
+
+    /**
+     * Budget for one slice of a file extracted in parallel: it shares the deadline, but counts characters
+     * on its own so slices do not starve each other. The parent's character cap is applied when the
+     * slices are stitched back together in order, which keeps the partial result a clean prefix.
+     */
+    public ExtractionBudget slice() {
+        return new ExtractionBudget(timeoutMs, deadlineNanos, maxChars, maxPages, this);
+    }
+
+    /**
+     * Number of pages that may be extracted out of pageCount; marks the budget truncated if that is fewer.
+     */
+    public int allowedPages(int pageCount) {
+        if (maxPages > 0 && pageCount > maxPages) {
+            truncate("page limit of " + maxPages + " reached (" + pageCount + " pages)");
+            return maxPages;
+        }
+        return pageCount;
+    }
+
+    public void checkDeadline() throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Extraction cancelled");
+        }
+        if (!stopped && System.nanoTime() > deadlineNanos) {
+            stop("time limit of " + timeoutMs + " ms reached");
+            if (parent != null) {
+                parent.stop(truncationReason);
+            }
+        }
+        if (stopped || (parent != null && parent.stopped)) {
+            throw new LimitExceededException(truncationReason != null ? truncationReason : parent.truncationReason);
+        }
+    }
+
+    /**
+     * Sink that enforces the character cap and the deadline on every event. Text that would go over the
+     * cap is cut, and the extractor is then stopped; a paragraph or page end counts as one character.
+     * Extractors that cannot be stopped midway (POI's whole-document ones) are cut after the fact.
+     */
+    public TextSink limit(TextSink sink) {
+        return new TextSink() {
+            @Override
+            public void text(CharSequence text) throws IOException {
+                checkDeadline();
+                int allowed = (int) reserveChars(text.length());
+                sink.text(allowed < text.length() ? text.subSequence(0, allowed) : text);
+                if (allowed < text.length()) {
+                    throw new LimitExceededException(truncationReason);
+                }
+            }
+
+            @Override
+            public void text(char[] chars, int start, int length) throws IOException {
+                checkDeadline();
+                int allowed = (int) reserveChars(length);
+                sink.text(chars, start, allowed);
+                if (allowed < length) {
+                    throw new LimitExceededException(truncationReason);
+                }
+            }
+
+            @Override
+            public void endParagraph() throws IOException {
+                checkDeadline();
+                if (reserveChars(1) < 1) {
+                    throw new LimitExceededException(truncationReason);
+                }
+                sink.endParagraph();
+            }
+
+            @Override
+            public void endPage(int pageNumber) throws IOException {
+                checkDeadline();
+                if (reserveChars(1) < 1) {
+                    throw new LimitExceededException(truncationReason);
+                }
+                sink.endPage(pageNumber);
+            }
+        };
+    }
+
+    public boolean isTruncated() {
+        return truncationReason != null;
+    }
+
+    public String getTruncationReason() {
+        return truncationReason;
+    }
+
+    private long reserveChars(long requested) {
+        long before = charsWritten.getAndAdd(requested);
+        long allowed = Math.max(0, Math.min(requested, maxChars - before));
+        if (allowed < requested) {
+            stop("character limit of " + maxChars + " reached");
+            if (parent != null) {
+                parent.truncate(truncationReason); // one slice alone is over the cap, so the whole file is
+            }
+        }
+        return allowed;
+    }
+
+    // The first limit hit is the one reported
+    private synchronized void truncate(String reason) {
+        if (truncationReason == null) {
+            truncationReason = reason;
+        }
+    }
+
+    private synchronized void stop(String reason) {
+        truncate(reason);
+        stopped = true;
+    }
+
+    /**
+     * Thrown from inside an extractor to unwind it once a limit is hit; callers keep the partial text.
+     */
+    public static class LimitExceededException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public LimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.service;
+
+/**
+ * Receives page progress while a document is being extracted. Only PDFs report pages; other formats
+ * finish without any callback. May be called from several extraction threads at once.
+ */
+@FunctionalInterface
+public interface ExtractionProgressListener {
+
+    ExtractionProgressListener NONE = (pagesProcessed, totalPages) -> {};
+
+    void onPagesExtracted(int pagesProcessed, int totalPages);
+
+    // The first pagesReady pages have been published and can be queried before extraction finishes
+    default void onPagesReady(int pagesReady, int totalPages) {
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.service;
+
+import java.nio.file.Path;
+
+/**
+ * One file to extract: the staged upload plus the limits and progress listener that apply to it.
+ */
+public class ExtractionRequest {
+
+    private final String filename;
+    private final DocumentFormat format;
+    private final Path path;
+    private final long fileSize;
+    private final ExtractionBudget budget;
+    private final ExtractionProgressListener progress;
+    private boolean cacheable = true;
+
+    public ExtractionRequest(String filename, DocumentFormat format, Path path, long fileSize,
+                             ExtractionBudget budget, ExtractionProgressListener progress) {
+        this.filename = filename;
+        this.format = format;
+        this.path = path;
+        this.fileSize = fileSize;
+        this.budget = budget;
+        this.progress = progress;
+    }
+
+    public String getFilename() { return filename; }
+    public DocumentFormat getFormat() { return format; }
+    public Path getPath() { return path; }
+    public long getFileSize() { return fileSize; }
+    public ExtractionBudget getBudget() { return budget; }
+    public ExtractionProgressListener getProgress() { return progress; }
+
+    // Called by an extractor whose output should not be reused for later uploads (e.g. an error notice)
+    public void doNotCache() { this.cacheable = false; }
+    public boolean isCacheable() { return cacheable; }
+}
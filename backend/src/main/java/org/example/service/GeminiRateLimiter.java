@@ -0,0 +1,143 @@
+package org.example.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Admission control for Gemini calls: a global token bucket sized to the API quota, a bucket per user so
+ * one busy user cannot drain it for everyone, and an exponential pause after Gemini itself reports rate
+ * limiting or fails. All state is updated lock-free.
+ */
+@Component
+public class GeminiRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(GeminiRateLimiter.class);
+
+    @Value("${ai.rate-limit.global.requests-per-minute:10}")
+    private int globalRequestsPerMinute;
+
+    @Value("${ai.rate-limit.global.burst:5}")
+    private int globalBurst;
+
+    @Value("${ai.rate-limit.user.requests-per-minute:4}")
+    private int userRequestsPerMinute;
+
+    @Value("${ai.rate-limit.user.burst:2}")
+    private int userBurst;
+
+    @Value("${ai.rate-limit.user.max-tracked:10000}")
+    private int maxTrackedUsers;
+
+    @Value("${ai.rate-limit.backoff-base-ms:10000}")
+    private long backoffBaseMs;
+
+    @Value("${ai.rate-limit.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    private TokenBucket globalBucket;
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong pausedUntilNanos = new AtomicLong(System.nanoTime());
+
+    @PostConstruct
+    public void init() {
+        globalBucket = new TokenBucket(globalRequestsPerMinute, globalBurst);
+        log.info("Gemini rate limit: {}/min (burst {}) overall, {}/min (burst {}) per user", globalRequestsPerMinute,
+                globalBurst, userRequestsPerMinute, userBurst);
+    }
+
+    /**
+     * Takes a permit for one Gemini call. A null userKey is only limited by the global bucket.
+     *
+     * @return 0 if the call may go ahead, otherwise the milliseconds until it may be retried
+     */
+    public long tryAcquire(String userKey) {
+        long paused = pausedUntilNanos.get() - System.nanoTime();
+        if (paused > 0) {
+            return toMillis(paused);
+        }
+
+        TokenBucket userBucket = userKey != null ? userBucket(userKey) : null;
+        if (userBucket != null) {
+            long wait = userBucket.tryAcquire();
+            if (wait > 0) {
+                return toMillis(wait);
+            }
+        }
+        long wait = globalBucket.tryAcquire();
+        if (wait > 0) {
+            if (userBucket != null) {
+                userBucket.refund(); // the user did not get to make the call
+            }
+            return toMillis(wait);
+        }
+        return 0;
+    }
+
+    // Milliseconds until the next call could be admitted overall, without taking a permit
+    public long millisUntilAvailable() {
+        long paused = pausedUntilNanos.get() - System.nanoTime();
+        long wait = Math.max(paused, globalBucket.nanosUntilAvailable());
+        return wait > 0 ? toMillis(wait) : 0;
+    }
+
+    /**
+     * Gemini rejected or failed a call: pause all calls, doubling the pause with every consecutive failure.
+     *
+     * @return the number of consecutive failures so far
+     */
+    public int recordFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        long pauseMs = getBackoffMillis(failures);
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pauseMs);
+        pausedUntilNanos.accumulateAndGet(until, (current, proposed) -> proposed - current > 0 ? proposed : current);
+        log.warn("Gemini calls paused for {}ms after {} consecutive failures", pauseMs, failures);
+        return failures;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public long getBackoffMillis(int failures) {
+        return Math.min(backoffBaseMs * Math.min(1L << Math.min(failures, 5), 30), backoffMaxMs);
+    }
+
+    /**
+     * Lifts the failure pause. The token buckets are left alone: this is reachable from client endpoints, and
+     * refilling them would let any caller lift the quota for everyone.
+     */
+    public void clearBackoff() {
+        consecutiveFailures.set(0);
+        pausedUntilNanos.set(System.nanoTime());
+    }
+
+    private TokenBucket userBucket(String userKey) {
+        TokenBucket bucket = userBuckets.get(userKey);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (userBuckets.size() >= maxTrackedUsers) {
+            userBuckets.values().removeIf(TokenBucket::isFull); // a full bucket is the same as a new one
+        }
+        return userBuckets.computeIfAbsent(userKey, key -> new TokenBucket(userRequestsPerMinute, userBurst));
+    }
+
+    private static long toMillis(long nanos) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nanos + 999_999));
+    }
+}
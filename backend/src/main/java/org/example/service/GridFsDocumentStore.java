@@ -0,0 +1,175 @@
+package org.example.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.bson.Document;
+import org.example.service.DocumentProcessingService.DocumentInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps extracted document text in its own GridFS bucket, gzip-compressed, one file per document.
+ * Partition, id and document metadata live in the file's metadata, so listing a partition never reads
+ * any text.
+ */
+@Component
+@ConditionalOnProperty(name = "document.store.shared.enabled", havingValue = "true", matchIfMissing = true)
+public class GridFsDocumentStore implements DocumentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(GridFsDocumentStore.class);
+
+    private static final String BUCKET = "document_text";
+    private static final int WRITE_WINDOW = CompressedText.BLOCK_CHARS;
+
+    private final GridFsTemplate gridFsTemplate;
+    private final MongoTemplate mongoTemplate;
+
+    public GridFsDocumentStore(MongoDatabaseFactory databaseFactory, MongoConverter converter, MongoTemplate mongoTemplate) {
+        this.gridFsTemplate = new GridFsTemplate(databaseFactory, converter, BUCKET);
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void createIndexes() {
+        try {
+            mongoTemplate.indexOps(BUCKET + ".files")
+                    .ensureIndex(new Index().on("metadata.partitionId", Sort.Direction.ASC).on("metadata.documentId", Sort.Direction.ASC));
+        } catch (RuntimeException e) {
+            log.warn("Could not create document store index: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void save(String partitionId, DocumentInfo document) {
+        Document metadata = new Document()
+                .append("partitionId", partitionId)
+                .append("documentId", document.getId())
+                .append("fileType", document.getFileType())
+                .append("fileSize", document.getFileSize())
+                .append("contentHash", document.getContentHash())
+                .append("contentLength", document.getContentLength())
+                .append("truncationReason", document.getTruncationReason());
+        if (document.getUploadTime() != null) {
+            metadata.append("uploadTime", Date.from(document.getUploadTime().atZone(ZoneId.systemDefault()).toInstant()));
+        }
+
+        try (InputStream text = new ByteArrayInputStream(gzip(document))) {
+            gridFsTemplate.store(text, document.getFilename(), "application/gzip", metadata);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + document.getFilename() + " to the document store", e);
+        }
+    }
+
+    @Override
+    public Set<String> listDocumentIds(String partitionId) {
+        Set<String> ids = new HashSet<>();
+        for (GridFSFile file : gridFsTemplate.find(partitionQuery(partitionId))) {
+            ids.add(file.getMetadata().getString("documentId"));
+        }
+        return ids;
+    }
+
+    @Override
+    public List<DocumentInfo> load(String partitionId, Collection<String> documentIds) {
+        List<DocumentInfo> documents = new ArrayList<>();
+        if (documentIds.isEmpty()) {
+            return documents;
+        }
+
+        Query query = Query.query(Criteria.where("metadata.partitionId").is(partitionId)
+                .and("metadata.documentId").in(documentIds))
+                .with(Sort.by(Sort.Direction.ASC, "uploadDate"));
+        for (GridFSFile file : gridFsTemplate.find(query)) {
+            documents.add(toDocumentInfo(file));
+        }
+        return documents;
+    }
+
+    @Override
+    public void deletePartition(String partitionId) {
+        gridFsTemplate.delete(partitionQuery(partitionId));
+    }
+
+    private DocumentInfo toDocumentInfo(GridFSFile file) {
+        Document metadata = file.getMetadata();
+        Date uploadTime = metadata.getDate("uploadTime");
+        Number fileSize = metadata.get("fileSize", Number.class);
+
+        DocumentInfo document = new DocumentInfo(metadata.getString("documentId"), file.getFilename(), readText(file),
+                uploadTime != null ? LocalDateTime.ofInstant(uploadTime.toInstant(), ZoneId.systemDefault()) : null,
+                fileSize != null ? fileSize.longValue() : null);
+        document.setContentHash(metadata.getString("contentHash"));
+        document.setTruncationReason(metadata.getString("truncationReason"));
+        return document;
+    }
+
+    private String readText(GridFSFile file) {
+        GridFsResource resource = gridFsTemplate.getResource(file);
+        Number length = file.getMetadata().get("contentLength", Number.class);
+        StringBuilder text = new StringBuilder(length != null ? length.intValue() : 16);
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(resource.getInputStream()), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file.getFilename() + " from the document store", e);
+        }
+        return text.toString();
+    }
+
+    // Compressed in windows so a CompressedText is never inflated as a whole
+    private static byte[] gzip(DocumentInfo document) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(document.getContentLength() / 3 + 64);
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            StringBuilder window = new StringBuilder(WRITE_WINDOW);
+            int length = document.getContentLength();
+            for (int start = 0; start < length; start += WRITE_WINDOW) {
+                int end = Math.min(length, start + WRITE_WINDOW);
+                window.setLength(0);
+                document.appendContent(window, start, end);
+                writer.append(window);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Query partitionQuery(String partitionId) {
+        return Query.query(Criteria.where("metadata.partitionId").is(partitionId));
+    }
+}
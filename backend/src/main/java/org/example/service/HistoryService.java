@@ -5,6 +5,8 @@ import org.example.repository.ChatSessionRepository;
 import org.example.repository.DocumentSessionRepository;
 import org.example.repository.ChatMessageRepository;
 import org.example.repository.SearchHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -17,6 +19,8 @@ import java.util.stream.Collectors;
 @Service
 public class HistoryService {
 
+    private static final Logger log = LoggerFactory.getLogger(HistoryService.class);
+
     @Autowired
     private ChatSessionRepository chatSessionRepository;
 
@@ -41,7 +45,7 @@ public class HistoryService {
     // ✅ ADD: Set current session for user
     public void setCurrentSession(String userId, String sessionId) {
         userCurrentSessionMap.put(userId, sessionId);
-        System.out.println("✅ Set current session for user " + userId + ": " + sessionId);
+        log.debug("Set current session for user {}: {}", userId, sessionId);
     }
 
     // ============================================
@@ -71,13 +75,11 @@ public class HistoryService {
             // ✅ Set as current session for user
             setCurrentSession(userId, savedSession.getId());
 
-            System.out.println("✅ Created new unified session: " + savedSession.getId() +
-                    " for user: " + userId + " on day: " + today + " type: " + sessionType);
+            log.info("Created new unified session {} for user {} on day {} (type {})", savedSession.getId(), userId, today, sessionType);
 
             return savedSession;
         } catch (Exception e) {
-            System.err.println("❌ Error creating unified session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error creating unified session: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to create unified session: " + e.getMessage());
         }
     }
@@ -97,16 +99,15 @@ public class HistoryService {
                 // ✅ Set as current session for user
                 setCurrentSession(userId, savedSession.getId());
 
-                System.out.println("✅ Using existing unified session: " + savedSession.getId() + " for user: " + userId);
+                log.debug("Using existing unified session {} for user {}", savedSession.getId(), userId);
                 return savedSession;
             }
 
-            System.out.println("🆕 Creating new unified session for user: " + userId + " (requested: " + requestedType + ")");
+            log.debug("Creating new unified session for user {} (requested: {})", userId, requestedType);
             return createNewDaySession(userId, "UNIFIED_SESSION");
 
         } catch (Exception e) {
-            System.err.println("❌ Error getting/creating unified session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting/creating unified session: {}", e.getMessage(), e);
             return createNewDaySession(userId, "UNIFIED_SESSION");
         }
     }
@@ -118,7 +119,7 @@ public class HistoryService {
 
             // ✅ VALIDATE: Ensure textContent is not null or empty
             if (textContent == null || textContent.trim().isEmpty()) {
-                System.err.println("⚠️ WARNING: Empty textContent for document: " + fileName);
+                log.warn("Empty textContent for document: {}", fileName);
                 textContent = String.format("""
                 DOCUMENT: %s
                 UPLOADED: %s
@@ -137,11 +138,11 @@ public class HistoryService {
             currentSession.getRestorationData().addDocumentForRestoration(documentId, fileName, fileType, textContent);
 
             ChatSession savedSession = chatSessionRepository.save(currentSession);
-            System.out.println("✅ Document stored with " + textContent.length() + " characters of content");
+            log.debug("Document stored with {} characters of content", textContent.length());
 
             return savedSession;
         } catch (Exception e) {
-            System.err.println("❌ Error adding document with content: " + e.getMessage());
+            log.error("Error adding document with content: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to add document with content: " + e.getMessage());
         }
     }
@@ -165,14 +166,11 @@ public class HistoryService {
             // ✅ Save session with updated messages
             ChatSession savedSession = chatSessionRepository.save(currentSession);
 
-            System.out.println("✅ Complete AI conversation saved - Question: " +
-                    question.substring(0, Math.min(50, question.length())) +
-                    ", Response: " + aiResponse.substring(0, Math.min(50, aiResponse.length())));
+            log.debug("AI conversation saved ({} chars question, {} chars response)", question.length(), aiResponse.length());
 
             return savedSession;
         } catch (Exception e) {
-            System.err.println("❌ Error saving complete AI conversation: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error saving complete AI conversation: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save AI conversation: " + e.getMessage());
         }
     }
@@ -187,11 +185,10 @@ public class HistoryService {
             saveSearchQuery(userId, query, resultsCount, queryType);
 
             ChatSession savedSession = chatSessionRepository.save(currentSession);
-            System.out.println("✅ Added search query to unified session: " + savedSession.getId());
+            log.debug("Added search query to unified session {}", savedSession.getId());
             return savedSession;
         } catch (Exception e) {
-            System.err.println("❌ Error adding search to unified session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error adding search to unified session: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to add search to unified session: " + e.getMessage());
         }
     }
@@ -201,7 +198,7 @@ public class HistoryService {
         try {
             String sessionId = getCurrentSessionId(userId);
             if (sessionId == null) {
-                System.err.println("⚠️ No current session for user: " + userId + ", cannot save chat message");
+                log.warn("No current session for user: {}, cannot save chat message", userId);
                 return;
             }
 
@@ -227,11 +224,10 @@ public class HistoryService {
             chatMessageRepository.save(userMessage);
             chatMessageRepository.save(aiMessage);
 
-            System.out.println("✅ Saved chat exchange: " + question.substring(0, Math.min(50, question.length())));
+            log.debug("Saved chat exchange ({} chars question)", question.length());
 
         } catch (Exception e) {
-            System.err.println("❌ Failed to save chat messages: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to save chat messages: {}", e.getMessage(), e);
         }
     }
 
@@ -240,7 +236,7 @@ public class HistoryService {
         try {
             String sessionId = getCurrentSessionId(userId);
             if (sessionId == null) {
-                System.err.println("⚠️ No current session for user: " + userId + ", cannot save search query");
+                log.warn("No current session for user: {}, cannot save search query", userId);
                 return;
             }
 
@@ -253,11 +249,10 @@ public class HistoryService {
             searchEntry.setTimestamp(LocalDateTime.now());
 
             searchHistoryRepository.save(searchEntry);
-            System.out.println("✅ Saved search query: " + query);
+            log.debug("Saved search query ({} chars)", query.length());
 
         } catch (Exception e) {
-            System.err.println("❌ Failed to save search query: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to save search query: {}", e.getMessage(), e);
         }
     }
 
@@ -281,15 +276,13 @@ public class HistoryService {
                 sessionData.put("session", session);
             }
 
-            System.out.println("✅ Retrieved complete session history for " + sessionId + ": " +
-                    chatMessages.size() + " chat messages, " +
-                    searchHistory.size() + " searches");
+            log.debug("Retrieved complete session history for {}: {} chat messages, {} searches", sessionId, chatMessages.size(),
+                    searchHistory.size());
 
             return sessionData;
 
         } catch (Exception e) {
-            System.err.println("❌ Failed to get complete session history: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Failed to get complete session history: {}", e.getMessage(), e);
             return new HashMap<>();
         }
     }
@@ -323,13 +316,12 @@ public class HistoryService {
             List<String> uniqueDays = new ArrayList<>(sessionsByDay.keySet());
             result.put("availableDays", uniqueDays);
 
-            System.out.println("✅ Retrieved unified session history for user: " + userId +
-                    " (" + allSessions.size() + " unified sessions across " + sessionsByDay.size() + " days)");
+            log.debug("Retrieved unified session history for user {}: {} sessions across {} days", userId, allSessions.size(),
+                    sessionsByDay.size());
 
             return result;
         } catch (Exception e) {
-            System.err.println("❌ Error getting unified session history: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting unified session history: {}", e.getMessage(), e);
             return new HashMap<>();
         }
     }
@@ -339,10 +331,10 @@ public class HistoryService {
             List<ChatSession> sessions = chatSessionRepository
                     .findByUserIdAndDayKeyAndSessionTypeAndIsActiveTrueOrderByCreatedAtDesc(userId, dayKey, "UNIFIED_SESSION");
 
-            System.out.println("✅ Retrieved " + sessions.size() + " unified sessions for user: " + userId + " on day: " + dayKey);
+            log.debug("Retrieved {} unified sessions for user {} on day {}", sessions.size(), userId, dayKey);
             return sessions;
         } catch (Exception e) {
-            System.err.println("❌ Error getting unified sessions for day: " + e.getMessage());
+            log.error("Error getting unified sessions for day: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -360,19 +352,16 @@ public class HistoryService {
                 // ✅ Set as current session for user
                 setCurrentSession(session.getUserId(), sessionId);
 
-                System.out.println("✅ Restored unified session: " + sessionId +
-                        " with " + session.getDocumentCount() + " documents, " +
-                        session.getMessageCount() + " messages, and " +
-                        session.getAIResponseCount() + " AI responses");
+                log.info("Restored unified session {} with {} documents, {} messages and {} AI responses", sessionId,
+                        session.getDocumentCount(), session.getMessageCount(), session.getAIResponseCount());
 
                 return savedSession;
             } else {
-                System.err.println("❌ Unified session not found for restoration: " + sessionId);
+                log.warn("Unified session not found for restoration: {}", sessionId);
                 return null;
             }
         } catch (Exception e) {
-            System.err.println("❌ Error restoring unified session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error restoring unified session: {}", e.getMessage(), e);
             return null;
         }
     }
@@ -393,10 +382,10 @@ public class HistoryService {
                     .filter(session -> "UNIFIED_SESSION".equals(session.getSessionType()))
                     .collect(Collectors.toList());
 
-            System.out.println("✅ Found " + titleResults.size() + " unified sessions matching search: " + searchTerm);
+            log.debug("Found {} unified sessions matching search", titleResults.size());
             return titleResults;
         } catch (Exception e) {
-            System.err.println("❌ Error searching unified sessions: " + e.getMessage());
+            log.error("Error searching unified sessions: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -410,10 +399,10 @@ public class HistoryService {
                     .filter(session -> "UNIFIED_SESSION".equals(session.getSessionType()))
                     .collect(Collectors.toList());
 
-            System.out.println("✅ Retrieved " + recentSessions.size() + " recent unified sessions (last " + days + " days)");
+            log.debug("Retrieved {} recent unified sessions (last {} days)", recentSessions.size(), days);
             return recentSessions;
         } catch (Exception e) {
-            System.err.println("❌ Error getting recent unified sessions: " + e.getMessage());
+            log.error("Error getting recent unified sessions: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -423,10 +412,10 @@ public class HistoryService {
             List<ChatSession> typedSessions = chatSessionRepository
                     .findByUserIdAndSessionTypeAndIsActiveTrueOrderByDayKeyDescCreatedAtDesc(userId, "UNIFIED_SESSION");
 
-            System.out.println("✅ Retrieved " + typedSessions.size() + " unified sessions");
+            log.debug("Retrieved {} unified sessions", typedSessions.size());
             return typedSessions;
         } catch (Exception e) {
-            System.err.println("❌ Error getting unified sessions: " + e.getMessage());
+            log.error("Error getting unified sessions: {}", e.getMessage(), e);
             return new ArrayList<>();
         }
     }
@@ -447,14 +436,14 @@ public class HistoryService {
                 chatMessageRepository.deleteBySessionId(sessionId);
                 searchHistoryRepository.deleteBySessionId(sessionId);
 
-                System.out.println("✅ Deleted unified session: " + sessionId);
+                log.info("Deleted unified session {}", sessionId);
                 return true;
             } else {
-                System.err.println("❌ Unified session not found for deletion: " + sessionId);
+                log.warn("Unified session not found for deletion: {}", sessionId);
                 return false;
             }
         } catch (Exception e) {
-            System.err.println("❌ Error deleting unified session: " + e.getMessage());
+            log.error("Error deleting unified session {}: {}", sessionId, e.getMessage(), e);
             return false;
         }
     }
@@ -466,12 +455,12 @@ public class HistoryService {
                 ChatSession session = sessionOpt.get();
                 session.archiveSession();
                 chatSessionRepository.save(session);
-                System.out.println("✅ Archived unified session: " + sessionId);
+                log.info("Archived unified session {}", sessionId);
                 return true;
             }
             return false;
         } catch (Exception e) {
-            System.err.println("❌ Error archiving unified session: " + e.getMessage());
+            log.error("Error archiving unified session {}: {}", sessionId, e.getMessage(), e);
             return false;
         }
     }
@@ -486,10 +475,10 @@ public class HistoryService {
                 searchHistoryRepository.deleteBySessionId(session.getId());
             }
             chatSessionRepository.saveAll(allSessions);
-            System.out.println("✅ Cleared unified session history for user: " + userId + " (" + allSessions.size() + " sessions)");
+            log.info("Cleared unified session history for user {} ({} sessions)", userId, allSessions.size());
             return true;
         } catch (Exception e) {
-            System.err.println("❌ Error clearing user history: " + e.getMessage());
+            log.error("Error clearing history for user {}: {}", userId, e.getMessage(), e);
             return false;
         }
     }
@@ -533,7 +522,7 @@ public class HistoryService {
         try {
             return chatSessionRepository.findById(sessionId).orElse(null);
         } catch (Exception e) {
-            System.err.println("❌ Error getting session by ID: " + e.getMessage());
+            log.error("Error getting session {}: {}", sessionId, e.getMessage(), e);
             return null;
         }
     }
@@ -0,0 +1,369 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+
+import org.bson.types.ObjectId;
+import org.example.logging.CorrelationIdFilter;
+import org.example.model.IngestionJob;
+import org.example.repository.IngestionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+
+/**
+ * Runs document extraction outside the HTTP request. Uploads are written to GridFS and recorded as
+ * PENDING jobs; workers on any instance claim them with an atomic findAndModify and hold a lease
+ * that a heartbeat renews for as long as the job runs. A job whose lease expires (instance recycled
+ * or frozen mid-run) becomes claimable again, up to the configured number of attempts.
+ */
+@Service
+@Lazy(false) // the poller must run even though the context is lazily initialised
+public class IngestionJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(IngestionJobService.class);
+
+    @Autowired
+    private IngestionJobRepository jobRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private GridFsTemplate gridFsTemplate;
+
+    @Autowired
+    private DocumentProcessingService documentProcessingService;
+
+    @Autowired
+    @Qualifier("ingestionExecutor")
+    private ThreadPoolTaskExecutor ingestionExecutor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${document.ingestion.lease-ms:120000}")
+    private long leaseMs;
+
+    @Value("${document.ingestion.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${document.ingestion.progress-interval-ms:1000}")
+    private long progressIntervalMs;
+
+    @Value("${document.scratch-dir:${java.io.tmpdir}}")
+    private String scratchDir;
+
+    private final String workerId = resolveWorkerId();
+
+    // One permit per worker thread, so we never claim a job we cannot start right away
+    private final Semaphore freeWorkers;
+
+    public IngestionJobService(@Value("${document.ingestion.workers:2}") int workers) {
+        this.freeWorkers = new Semaphore(Math.max(1, workers));
+    }
+
+    /**
+     * Store the raw upload in GridFS, record a PENDING job and try to start it on this instance.
+     * The extracted document is stored in the given session's partition.
+     */
+    public IngestionJob submit(String sessionId, MultipartFile file) throws IOException {
+        ObjectId uploadFileId;
+        try (InputStream inputStream = file.getInputStream()) {
+            uploadFileId = gridFsTemplate.store(inputStream, file.getOriginalFilename(), file.getContentType());
+        }
+
+        IngestionJob pending = new IngestionJob(file.getOriginalFilename(),
+                file.getContentType(), file.getSize(), uploadFileId.toHexString());
+        pending.setSessionId(sessionId);
+        IngestionJob job = jobRepository.save(pending);
+        log.info("Ingestion job queued: {} ({}, {} bytes)", job.getId(), job.getFilename(), job.getFileSize());
+
+        dispatchPendingJobs();
+        return job;
+    }
+
+    public Optional<IngestionJob> findJob(String jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    public long getPendingJobCount() {
+        return jobRepository.countByStatus(IngestionJob.Status.PENDING);
+    }
+
+    /**
+     * Claim and start jobs while this instance has idle workers. Also picks up jobs left behind by
+     * instances that stopped renewing their lease.
+     */
+    @Scheduled(fixedDelayString = "${document.ingestion.poll-interval-ms:5000}",
+               initialDelayString = "${document.ingestion.poll-interval-ms:5000}")
+    public void dispatchPendingJobs() {
+        while (freeWorkers.tryAcquire()) {
+            IngestionJob job;
+            try {
+                job = claimNextJob();
+            } catch (RuntimeException e) {
+                freeWorkers.release();
+                log.warn("Could not poll ingestion jobs: {}", e.getMessage());
+                return;
+            }
+
+            if (job == null) {
+                freeWorkers.release();
+                return;
+            }
+
+            try {
+                ingestionExecutor.execute(() -> {
+                    MDC.put("jobId", job.getId());
+                    MDC.put(CorrelationIdFilter.MDC_SESSION_ID, job.getSessionId());
+                    try {
+                        runJob(job);
+                    } finally {
+                        MDC.remove("jobId");
+                        MDC.remove(CorrelationIdFilter.MDC_SESSION_ID);
+                        freeWorkers.release();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                freeWorkers.release();
+                releaseClaim(job);
+                return;
+            }
+        }
+    }
+
+    private IngestionJob claimNextJob() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(IngestionJob.Status.PENDING),
+                Criteria.where("status").is(IngestionJob.Status.RUNNING).and("leaseExpiresAt").lt(now)))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt"));
+
+        Update update = new Update()
+                .set("status", IngestionJob.Status.RUNNING)
+                .set("workerId", workerId)
+                .set("leaseExpiresAt", now.plusNanos(leaseMs * 1_000_000))
+                .set("startedAt", now)
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), IngestionJob.class);
+    }
+
+    private void runJob(IngestionJob job) {
+        if (job.getAttempts() > maxAttempts) {
+            finishFailed(job, "Gave up after " + maxAttempts + " attempts");
+            return;
+        }
+
+        log.info("Ingestion job {} started on {} (attempt {}): {}", job.getId(), workerId, job.getAttempts(), job.getFilename());
+        long startTime = System.currentTimeMillis();
+        LeaseRenewingProgress progress = new LeaseRenewingProgress(job.getId());
+        // ✅ NEW: renew the lease on a timer, not only on page events - most formats never report pages
+        long renewalMs = Math.max(1000, leaseMs / 3);
+        ScheduledFuture<?> heartbeat = taskScheduler.scheduleAtFixedRate(progress::renewLease,
+                Instant.now().plusMillis(renewalMs), Duration.ofMillis(renewalMs));
+        Path stagedFile = null;
+        try {
+            stagedFile = downloadUpload(job);
+            StagedMultipartFile file = new StagedMultipartFile(stagedFile, job.getFilename(), job.getContentType());
+
+            DocumentProcessingService.StoredDocument stored =
+                    documentProcessingService.storeDocument(job.getSessionId(), file, progress);
+
+            Update update = new Update()
+                    .set("status", IngestionJob.Status.COMPLETED)
+                    .set("documentId", stored.getDocument().getId())
+                    .set("duplicate", stored.isDuplicate())
+                    .set("contentLength", stored.getDocument().getContentLength())
+                    .set("truncationReason", stored.getDocument().getTruncationReason())
+                    .set("completedAt", LocalDateTime.now())
+                    .set("updatedAt", LocalDateTime.now())
+                    .unset("leaseExpiresAt")
+                    .unset("error");
+            if (updateOwnedJob(job.getId(), update)) {
+                deleteUpload(job);
+            }
+            log.info("Ingestion job {} completed in {}ms: {}", job.getId(), System.currentTimeMillis() - startTime, job.getFilename());
+
+        } catch (Exception e) {
+            String error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            log.warn("Ingestion job {} failed (attempt {}): {}", job.getId(), job.getAttempts(), error, e);
+            if (job.getAttempts() < maxAttempts && !(e.getCause() instanceof IllegalArgumentException)) {
+                // Transient failure: hand the job back so this or another instance retries it
+                updateOwnedJob(job.getId(), new Update()
+                        .set("status", IngestionJob.Status.PENDING)
+                        .set("error", error)
+                        .set("updatedAt", LocalDateTime.now())
+                        .unset("workerId")
+                        .unset("leaseExpiresAt"));
+            } else {
+                finishFailed(job, error);
+            }
+        } finally {
+            heartbeat.cancel(false);
+            if (stagedFile != null) {
+                try {
+                    Files.deleteIfExists(stagedFile);
+                } catch (IOException ignored) {
+                    // Scratch space is cleaned up with the instance anyway
+                }
+            }
+        }
+    }
+
+    private Path downloadUpload(IngestionJob job) throws IOException {
+        GridFSFile upload = gridFsTemplate.findOne(
+                Query.query(Criteria.where("_id").is(new ObjectId(job.getUploadFileId()))));
+        if (upload == null) {
+            throw new IllegalStateException("Uploaded file is no longer available for job " + job.getId());
+        }
+
+        Path stagedFile = Files.createTempFile(Path.of(scratchDir), "ingest-", ".upload");
+        GridFsResource resource = gridFsTemplate.getResource(upload);
+        try (InputStream inputStream = resource.getInputStream()) {
+            Files.copy(inputStream, stagedFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(stagedFile);
+            throw e;
+        }
+        return stagedFile;
+    }
+
+    private void finishFailed(IngestionJob job, String error) {
+        Update update = new Update()
+                .set("status", IngestionJob.Status.FAILED)
+                .set("error", error)
+                .set("completedAt", LocalDateTime.now())
+                .set("updatedAt", LocalDateTime.now())
+                .unset("leaseExpiresAt");
+        if (updateOwnedJob(job.getId(), update)) {
+            deleteUpload(job);
+        }
+    }
+
+    // Put a claimed-but-never-started job back without counting the attempt
+    private void releaseClaim(IngestionJob job) {
+        updateOwnedJob(job.getId(), new Update()
+                .set("status", IngestionJob.Status.PENDING)
+                .inc("attempts", -1)
+                .unset("workerId")
+                .unset("leaseExpiresAt"));
+    }
+
+    /**
+     * Apply an update only while this worker still holds the job. If the lease expired and another
+     * instance took the job over, our late result is dropped instead of overwriting theirs.
+     */
+    private boolean updateOwnedJob(String jobId, Update update) {
+        Query query = Query.query(Criteria.where("_id").is(jobId)
+                .and("workerId").is(workerId)
+                .and("status").is(IngestionJob.Status.RUNNING));
+        return mongoTemplate.updateFirst(query, update, IngestionJob.class).getModifiedCount() > 0;
+    }
+
+    private void deleteUpload(IngestionJob job) {
+        try {
+            gridFsTemplate.delete(Query.query(Criteria.where("_id").is(new ObjectId(job.getUploadFileId()))));
+        } catch (RuntimeException e) {
+            log.warn("Could not delete upload for job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private static String resolveWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "unknown-host";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Writes page counts to the job record (at most once per progress interval, plus the final page) and
+     * extends the job's lease, both on page events and from the heartbeat, so a long extraction is not
+     * mistaken for a dead worker.
+     */
+    private class LeaseRenewingProgress implements ExtractionProgressListener {
+        private final String jobId;
+        private long lastWriteMillis = 0;
+
+        LeaseRenewingProgress(String jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public synchronized void onPagesExtracted(int pagesProcessed, int totalPages) {
+            long now = System.currentTimeMillis();
+            if (pagesProcessed > 0 && pagesProcessed < totalPages && now - lastWriteMillis < progressIntervalMs) {
+                return;
+            }
+            lastWriteMillis = now;
+
+            try {
+                updateOwnedJob(jobId, new Update()
+                        .set("pagesProcessed", pagesProcessed)
+                        .set("totalPages", totalPages)
+                        .set("leaseExpiresAt", LocalDateTime.now().plusNanos(leaseMs * 1_000_000))
+                        .set("updatedAt", LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("Could not record progress for job {}: {}", jobId, e.getMessage());
+            }
+        }
+
+        void renewLease() {
+            try {
+                updateOwnedJob(jobId, new Update()
+                        .set("leaseExpiresAt", LocalDateTime.now().plusNanos(leaseMs * 1_000_000))
+                        .set("updatedAt", LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("Could not renew lease for job {}: {}", jobId, e.getMessage());
+            }
+        }
+
+        // Published batches are rare (they double in size), so each one is recorded
+        @Override
+        public void onPagesReady(int pagesReady, int totalPages) {
+            try {
+                updateOwnedJob(jobId, new Update()
+                        .set("pagesReady", pagesReady)
+                        .set("updatedAt", LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("Could not record ready pages for job {}: {}", jobId, e.getMessage());
+            }
+        }
+    }
+}
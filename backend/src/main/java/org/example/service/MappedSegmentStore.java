@@ -0,0 +1,219 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Off-heap storage for extracted document text. Text is appended as UTF-16 to memory-mapped segment
+ * files and handed back as {@link MappedText} views, so the heap holds only offsets and metadata and
+ * prompt assembly and search read directly from the mapping. UTF-16 keeps charAt O(1) at the cost of
+ * two bytes per character on disk.
+ *
+ * Segments are append-only. A full segment is deleted once every document in it has become
+ * unreachable (partition cleared or evicted); segment contents do not survive a restart.
+ */
+@Service
+public class MappedSegmentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedSegmentStore.class);
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".chars";
+
+    @Value("${document.text.mapped.enabled:false}")
+    private boolean enabled;
+
+    @Value("${document.text.mapped.dir:${java.io.tmpdir}/document-segments}")
+    private String segmentDir;
+
+    @Value("${document.text.mapped.segment-bytes:268435456}")
+    private long segmentBytes;
+
+    private final Cleaner cleaner = Cleaner.create();
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment current;
+    private long nextSegmentId = 0;
+    private boolean initialized = false;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized MappedText append(CharSequence text) {
+        ensureInitialized();
+        long needed = 2L * text.length();
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Document too large for a single segment: " + text.length() + " chars");
+        }
+
+        if (current == null || current.remainingBytes() < needed) {
+            if (current != null && current.seal()) {
+                segments.remove(current);
+            }
+            current = Segment.create(Path.of(segmentDir).resolve(PREFIX + (nextSegmentId++) + SUFFIX),
+                    Math.min(Integer.MAX_VALUE, Math.max(segmentBytes, needed)));
+            segments.add(current);
+        }
+
+        Segment segment = current;
+        MappedText mapped = new MappedText(segment.write(text));
+        // The segment file goes away once it is full and none of its documents are reachable any more
+        cleaner.register(mapped, () -> {
+            if (segment.release()) {
+                segments.remove(segment);
+            }
+        });
+        return mapped;
+    }
+
+    public Map<String, Object> getStats() {
+        long mappedBytes = 0;
+        long usedBytes = 0;
+        for (Segment segment : segments) {
+            mappedBytes += segment.capacityBytes;
+            usedBytes += segment.usedBytes();
+        }
+        return Map.of(
+                "enabled", enabled,
+                "segments", segments.size(),
+                "mappedBytes", mappedBytes,
+                "usedBytes", usedBytes
+        );
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (Segment segment : new ArrayList<>(segments)) {
+            segment.delete();
+        }
+        segments.clear();
+        current = null;
+    }
+
+    // Offsets are only kept on the heap, so segments left by a previous process are unreadable: remove them
+    private void ensureInitialized() {
+        if (initialized) {
+            return;
+        }
+        try {
+            Path dir = Path.of(segmentDir);
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.filter(MappedSegmentStore::isSegmentFile).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not prepare segment directory " + segmentDir, e);
+        }
+        initialized = true;
+    }
+
+    private static boolean isSegmentFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long capacityBytes;
+        private final CharBuffer chars;
+        private int usedChars = 0;
+        private int liveDocuments = 0;
+        private boolean sealed = false;
+        private boolean deleted = false;
+
+        private Segment(Path path, long capacityBytes, CharBuffer chars) {
+            this.path = path;
+            this.capacityBytes = capacityBytes;
+            this.chars = chars;
+        }
+
+        static Segment create(Path path, long capacityBytes) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+                return new Segment(path, capacityBytes, buffer.asCharBuffer());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create segment " + path, e);
+            }
+        }
+
+        synchronized CharBuffer write(CharSequence text) {
+            int start = usedChars;
+            CharBuffer target = chars.duplicate();
+            target.position(start);
+            if (text instanceof String string) {
+                target.put(string);
+            } else {
+                for (int i = 0; i < text.length(); i++) {
+                    target.put(text.charAt(i));
+                }
+            }
+            usedChars += text.length();
+            liveDocuments++;
+            return chars.duplicate().position(start).limit(usedChars).slice().asReadOnlyBuffer();
+        }
+
+        synchronized long remainingBytes() {
+            return capacityBytes - 2L * usedChars;
+        }
+
+        synchronized long usedBytes() {
+            return 2L * usedChars;
+        }
+
+        // Returns true when the segment was already unused and has been deleted
+        synchronized boolean seal() {
+            sealed = true;
+            if (liveDocuments == 0) {
+                delete();
+                return true;
+            }
+            return false;
+        }
+
+        // Returns true when this released the last document of a full segment
+        synchronized boolean release() {
+            liveDocuments--;
+            if (sealed && liveDocuments == 0) {
+                delete();
+                return true;
+            }
+            return false;
+        }
+
+        // On Linux the pages stay readable until the mapping itself is collected
+        synchronized void delete() {
+            if (deleted) {
+                return;
+            }
+            deleted = true;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete segment {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
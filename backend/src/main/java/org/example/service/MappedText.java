@@ -0,0 +1,61 @@
+package org.example.service;
+
+import java.nio.CharBuffer;
+
+/**
+ * Document text that lives in a memory-mapped segment file rather than on the heap. The object itself
+ * is just a read-only view of the document's character range, so charAt and appendTo read straight
+ * from the mapping. Only absolute gets are used, which keeps a shared instance safe across threads.
+ */
+public final class MappedText implements CharSequence {
+
+    private static final int COPY_BUFFER_CHARS = 8192;
+
+    private final CharBuffer chars;
+
+    MappedText(CharBuffer chars) {
+        this.chars = chars;
+    }
+
+    @Override
+    public int length() {
+        return chars.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars.get(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkRange(start, end);
+        StringBuilder text = new StringBuilder(end - start);
+        appendTo(text, start, end);
+        return text.toString();
+    }
+
+    public void appendTo(StringBuilder target, int start, int end) {
+        checkRange(start, end);
+        char[] buffer = new char[Math.min(COPY_BUFFER_CHARS, end - start)];
+        for (int position = start; position < end; ) {
+            int take = Math.min(buffer.length, end - position);
+            chars.get(position, buffer, 0, take);
+            target.append(buffer, 0, take);
+            position += take;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(length());
+        appendTo(text, 0, length());
+        return text.toString();
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length() || start > end) {
+            throw new IndexOutOfBoundsException("range [" + start + ", " + end + "), length " + length());
+        }
+    }
+}
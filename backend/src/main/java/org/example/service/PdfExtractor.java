@@ -0,0 +1,282 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * PDF text via PDFBox 3.x. Streaming mode (default) parses the staged file through a file-backed
+ * RandomAccessRead with a temp-file stream cache and strips a batch of pages at a time, so heap use does
+ * not depend on the size of the PDF. Large PDFs are stripped in page-range slices across cores.
+ *
+ * A PDF that cannot be read, or yields almost no text (scanned pages), is still stored: a processing
+ * note is written in place of (or after) the text instead of failing the upload.
+ */
+@Component
+public class PdfExtractor implements DocumentExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfExtractor.class);
+
+    // Less visible text than this usually means an image-only PDF
+    private static final int MIN_VISIBLE_CHARS = 50;
+
+    @Value("${document.pdf.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${document.pdf.pages-per-batch:10}")
+    private int pagesPerBatch;
+
+    @Value("${document.pdf.parallel-min-pages:40}")
+    private int parallelMinPages;
+
+    private final ForkJoinPool extractionPool;
+
+    public PdfExtractor(@Value("${document.pdf.parallelism:0}") int parallelism) {
+        this.extractionPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        extractionPool.shutdownNow();
+    }
+
+    @Override
+    public String getName() {
+        return "PDF";
+    }
+
+    @Override
+    public Set<DocumentFormat> getFormats() {
+        return Set.of(DocumentFormat.PDF);
+    }
+
+    @Override
+    public String getCacheVersion() {
+        return "PDF/1/streaming=" + streamingEnabled;
+    }
+
+    @Override
+    public void extract(ExtractionRequest request, TextSink sink) throws Exception {
+        CountingTextSink counted = new CountingTextSink(sink);
+        int pages;
+        try {
+            pages = streamingEnabled ? extractStreaming(request, counted) : extractInMemory(request, counted);
+        } catch (ExtractionBudget.LimitExceededException | InterruptedIOException e) {
+            throw e; // a limit was hit or the caller cancelled: not a broken PDF
+        } catch (Exception e) {
+            log.warn("PDF extraction failed for {}: {}", request.getFilename(), e.getMessage(), e);
+            // Report the problem as content instead of failing the upload, and never cache it
+            request.doNotCache();
+            writeProcessingNote(request, counted, "PDF text extraction encountered issues: " + e.getMessage());
+            return;
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("PDF extracted: {} ({} pages, {} chars, mode {})", request.getFilename(), pages, counted.getCharacters(),
+                    !streamingEnabled ? "in-memory"
+                            : shouldExtractInParallel(pages) ? "parallel/" + extractionPool.getParallelism()
+                            : "streaming/" + pagesPerBatch);
+        }
+
+        if (counted.getVisibleCharacters() < MIN_VISIBLE_CHARS) {
+            log.warn("Very little text extracted from {} - it might be image-based", request.getFilename());
+            writeProcessingNote(request, counted, "Very little text could be extracted; the PDF may be image-based");
+        }
+    }
+
+    // Returns the number of pages in the document
+    private int extractStreaming(ExtractionRequest request, TextSink sink) throws Exception {
+        ExtractionBudget budget = request.getBudget();
+        int pageCount;
+        int pagesToExtract;
+        try (PDDocument document = openScratchPdf(request.getPath())) {
+            if (document.isEncrypted()) {
+                throw new IOException("PDF is encrypted and cannot be processed");
+            }
+
+            pageCount = document.getNumberOfPages();
+            pagesToExtract = budget.allowedPages(pageCount);
+            request.getProgress().onPagesExtracted(0, pagesToExtract);
+            if (!shouldExtractInParallel(pagesToExtract)) {
+                stripPages(document, 1, pagesToExtract, sink, pageProgress(request.getProgress(), pagesToExtract), budget);
+                return pageCount;
+            }
+        }
+
+        extractParallel(request.getPath(), pagesToExtract, pageProgress(request.getProgress(), pagesToExtract), budget, sink);
+        return pageCount;
+    }
+
+    private boolean shouldExtractInParallel(int pageCount) {
+        return extractionPool.getParallelism() > 1 && pageCount >= parallelMinPages;
+    }
+
+    /**
+     * Split the page range into slices and strip each slice with its own PDDocument/PDFTextStripper
+     * (neither is thread-safe) into a buffer, then replay the buffers into the sink in page order.
+     */
+    private void extractParallel(Path scratchFile, int pageCount, IntConsumer pagesStripped,
+                                 ExtractionBudget budget, TextSink sink) throws Exception {
+        int parallelism = extractionPool.getParallelism();
+        // Two slices per worker evens out pages that are much slower to strip than others
+        int sliceSize = Math.max(pagesPerBatch, (int) Math.ceil(pageCount / (parallelism * 2.0)));
+
+        List<ForkJoinTask<SliceText>> slices = new ArrayList<>();
+        for (int firstPage = 1; firstPage <= pageCount; firstPage += sliceSize) {
+            int startPage = firstPage;
+            int endPage = Math.min(pageCount, firstPage + sliceSize - 1);
+            slices.add(extractionPool.submit(() -> {
+                try (PDDocument document = openScratchPdf(scratchFile)) {
+                    TextBuffer buffer = new TextBuffer("", true);
+                    ExtractionBudget sliceBudget = budget.slice();
+                    try {
+                        stripPages(document, startPage, endPage, sliceBudget.limit(buffer), pagesStripped, sliceBudget);
+                        return new SliceText(buffer, true);
+                    } catch (ExtractionBudget.LimitExceededException e) {
+                        // Deadline (shared by all slices) or this slice alone reached the character cap
+                        return new SliceText(buffer, false);
+                    }
+                }
+            }));
+        }
+
+        log.debug("Parallel PDF extraction: {} pages in {} slices on {} workers", pageCount, slices.size(), parallelism);
+
+        try {
+            // The caller's sink applies the file's character cap, so the result stays a clean prefix
+            for (ForkJoinTask<SliceText> slice : slices) {
+                SliceText sliceText = slice.get();
+                sliceText.text().replayTo(sink);
+                if (!sliceText.complete()) {
+                    throw new ExtractionBudget.LimitExceededException(budget.getTruncationReason());
+                }
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            slices.forEach(slice -> slice.cancel(true)); // no-op for slices that already finished
+        }
+    }
+
+    private record SliceText(TextBuffer text, boolean complete) {}
+
+    private PDDocument openScratchPdf(Path scratchFile) throws IOException {
+        RandomAccessRead source = new RandomAccessReadBufferedFile(scratchFile.toFile());
+        try {
+            // The document closes its source when it is closed
+            return Loader.loadPDF(source, IOUtils.createTempFileOnlyStreamCache());
+        } catch (IOException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    private void stripPages(PDDocument document, int startPage, int endPage, TextSink sink,
+                            IntConsumer pagesStripped, ExtractionBudget budget) throws IOException {
+        PDFTextStripper stripper = newTextStripper(sink, budget);
+
+        int batchSize = Math.max(1, pagesPerBatch);
+        for (int firstPage = startPage; firstPage <= endPage; firstPage += batchSize) {
+            int lastPage = Math.min(endPage, firstPage + batchSize - 1);
+            stripper.setStartPage(firstPage);
+            stripper.setEndPage(lastPage);
+            stripper.writeText(document, TextSink.asWriter(sink));
+            pagesStripped.accept(lastPage - firstPage + 1);
+        }
+    }
+
+    /**
+     * Stripper that reports page ends to the sink, and checks the extraction budget per page and every
+     * few hundred content stream operators so a hostile page cannot run past the deadline.
+     */
+    private static PDFTextStripper newTextStripper(TextSink sink, ExtractionBudget budget) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper() {
+            private int operators = 0;
+
+            @Override
+            protected void startPage(PDPage page) throws IOException {
+                budget.checkDeadline();
+                super.startPage(page);
+            }
+
+            @Override
+            protected void endPage(PDPage page) throws IOException {
+                super.endPage(page);
+                sink.endPage(getCurrentPageNo());
+            }
+
+            @Override
+            protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+                if ((++operators & 0xFF) == 0) {
+                    budget.checkDeadline();
+                }
+                super.processOperator(operator, operands);
+            }
+        };
+        stripper.setSortByPosition(true);
+        stripper.setPageEnd(""); // the sink decides how page ends are rendered
+        return stripper;
+    }
+
+    // Turns per-batch page counts (possibly from several slices at once) into a running total
+    private static IntConsumer pageProgress(ExtractionProgressListener progress, int pageCount) {
+        AtomicInteger pagesDone = new AtomicInteger();
+        return pages -> progress.onPagesExtracted(pagesDone.addAndGet(pages), pageCount);
+    }
+
+    // Legacy whole-document extraction (heap stream cache), kept for document.pdf.streaming.enabled=false
+    private int extractInMemory(ExtractionRequest request, TextSink sink) throws Exception {
+        try (PDDocument document = Loader.loadPDF(request.getPath().toFile())) {
+            if (document.isEncrypted()) {
+                throw new IOException("PDF is encrypted and cannot be processed");
+            }
+
+            int pagesToExtract = request.getBudget().allowedPages(document.getNumberOfPages());
+            PDFTextStripper stripper = newTextStripper(sink, request.getBudget());
+            stripper.setEndPage(pagesToExtract);
+            stripper.writeText(document, TextSink.asWriter(sink));
+            request.getProgress().onPagesExtracted(pagesToExtract, pagesToExtract);
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static void writeProcessingNote(ExtractionRequest request, TextSink sink, String note) throws IOException {
+        sink.endParagraph();
+        sink.text(String.format("""
+                === PROCESSING NOTES ===
+                DOCUMENT: %s
+                PROCESSED: %s
+                FILE SIZE: %d bytes
+                NOTE: %s
+                """,
+                request.getFilename(),
+                LocalDateTime.now().toString(),
+                request.getFileSize(),
+                note));
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.service;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain text uploads, including session content re-posted by the frontend on restore. Decoded straight
+ * from the staged file into the sink; malformed UTF-8 is replaced.
+ */
+@Component
+public class PlainTextExtractor implements DocumentExtractor {
+
+    private static final Logger log = LoggerFactory.getLogger(PlainTextExtractor.class);
+
+    @Override
+    public String getName() {
+        return "TXT";
+    }
+
+    @Override
+    public Set<DocumentFormat> getFormats() {
+        return Set.of(DocumentFormat.TEXT, DocumentFormat.RESTORED_TEXT);
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return false;
+    }
+
+    @Override
+    public void extract(ExtractionRequest request, TextSink sink) throws Exception {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(request.getPath()), StandardCharsets.UTF_8)) {
+            long characters = reader.transferTo(TextSink.asWriter(sink));
+            if (request.getFormat() == DocumentFormat.RESTORED_TEXT) {
+                log.info("Restored session content detected: {} ({} chars)", request.getFilename(), characters);
+            } else {
+                log.info("TXT extracted {} characters from {}", characters, request.getFilename());
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.service;
+
+import java.util.Locale;
+
+/**
+ * Identity of an AI request for de-duplication: the question as the user typed it, normalised for case,
+ * whitespace and trailing punctuation, plus the fingerprint of the document set it is asked against.
+ */
+public record QuestionKey(String question, String documentFingerprint) {
+
+    public static QuestionKey of(String question, String documentFingerprint) {
+        if (question == null || documentFingerprint == null) {
+            return null;
+        }
+        String normalized = question.strip()
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("[\\s?!.]+$", "");
+        return normalized.isEmpty() ? null : new QuestionKey(normalized, documentFingerprint);
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * An upload read exactly once: in the same pass the bytes are hashed, the leading bytes are kept for
+ * format sniffing, and (unless the upload already lives on local disk) the stream is spooled to a
+ * scratch file. Extractors then work from the file instead of re-reading or copying the upload.
+ */
+public final class StagedUpload implements AutoCloseable {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final boolean temporary;
+    private final String sha256;
+    private final byte[] head;
+    private final int headLength;
+    private final long size;
+
+    private StagedUpload(Path path, boolean temporary, String sha256, byte[] head, int headLength, long size) {
+        this.path = path;
+        this.temporary = temporary;
+        this.sha256 = sha256;
+        this.head = head;
+        this.headLength = headLength;
+        this.size = size;
+    }
+
+    public static StagedUpload stage(MultipartFile file, Path scratchDir) throws IOException {
+        if (file instanceof StagedMultipartFile staged) {
+            // Already on disk (chunked upload or ingestion job): hash it in place, no copy
+            try (InputStream inputStream = Files.newInputStream(staged.getPath())) {
+                return read(inputStream, null, staged.getPath(), false);
+            }
+        }
+
+        Path scratchFile = Files.createTempFile(scratchDir, "upload-", ".bin");
+        try (InputStream inputStream = file.getInputStream();
+             OutputStream outputStream = Files.newOutputStream(scratchFile)) {
+            return read(inputStream, outputStream, scratchFile, true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(scratchFile);
+            throw e;
+        }
+    }
+
+    private static StagedUpload read(InputStream inputStream, OutputStream copy, Path path, boolean temporary) throws IOException {
+        MessageDigest digest = ContentHasher.newDigest();
+        byte[] head = new byte[DocumentFormat.SNIFF_LENGTH];
+        int headLength = 0;
+        long size = 0;
+
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            if (headLength < head.length) {
+                int take = Math.min(read, head.length - headLength);
+                System.arraycopy(buffer, 0, head, headLength, take);
+                headLength += take;
+            }
+            if (copy != null) {
+                copy.write(buffer, 0, read);
+            }
+            size += read;
+        }
+        return new StagedUpload(path, temporary, ContentHasher.toHex(digest), head, headLength, size);
+    }
+
+    public DocumentFormat detectFormat(String filename, String contentType) {
+        return DocumentFormat.detect(head, headLength, path, filename, contentType);
+    }
+
+    public Path getPath() { return path; }
+    public String getSha256() { return sha256; }
+    public long getSize() { return size; }
+
+    @Override
+    public void close() throws IOException {
+        if (temporary) {
+            Files.deleteIfExists(path);
+        }
+    }
+}
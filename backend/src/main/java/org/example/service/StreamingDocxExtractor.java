@@ -0,0 +1,190 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pulls the body text out of a DOCX by streaming the main document part straight from the zip with StAX.
+ * Only the XML of the body is read; images and other embedded parts are never inflated, and text is
+ * pushed to the sink paragraph by paragraph instead of being collected in a document model first.
+ * Headers, footers, comments and deleted (tracked) text are not included.
+ */
+public final class StreamingDocxExtractor {
+
+    private static final String DEFAULT_MAIN_PART = "word/document.xml";
+    private static final String PACKAGE_RELATIONSHIPS = "_rels/.rels";
+    private static final String OFFICE_DOCUMENT_REL = "/officeDocument";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private StreamingDocxExtractor() {}
+
+    /**
+     * @return number of characters written to the sink
+     */
+    public static long extract(Path docxFile, TextSink sink) throws IOException, XMLStreamException {
+        try (ZipFile zip = new ZipFile(docxFile.toFile())) {
+            ZipEntry mainPart = zip.getEntry(findMainPart(zip));
+            if (mainPart == null) {
+                throw new IOException("No main document part in " + docxFile.getFileName());
+            }
+            try (InputStream inputStream = zip.getInputStream(mainPart)) {
+                return writeBodyText(inputStream, sink);
+            }
+        }
+    }
+
+    // The package relationships name the main part; it is word/document.xml in practically every file
+    private static String findMainPart(ZipFile zip) throws IOException, XMLStreamException {
+        ZipEntry relationships = zip.getEntry(PACKAGE_RELATIONSHIPS);
+        if (relationships == null) {
+            return DEFAULT_MAIN_PART;
+        }
+
+        try (InputStream inputStream = zip.getInputStream(relationships)) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())) {
+                        String type = reader.getAttributeValue(null, "Type");
+                        String target = reader.getAttributeValue(null, "Target");
+                        if (type != null && target != null && type.endsWith(OFFICE_DOCUMENT_REL)) {
+                            return target.startsWith("/") ? target.substring(1) : target;
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return DEFAULT_MAIN_PART;
+    }
+
+    private static long writeBodyText(InputStream inputStream, TextSink sink) throws IOException, XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        BodyTextWriter out = new BodyTextWriter(sink);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    out.text(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    continue;
+                }
+                if ((event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT)
+                        || !isWordElement(reader)) {
+                    continue;
+                }
+
+                boolean start = event == XMLStreamConstants.START_ELEMENT;
+                switch (reader.getLocalName()) {
+                    // w:t holds visible text; w:delText and w:instrText (field codes) are skipped
+                    case "t" -> out.inText = start;
+                    case "tab" -> { if (start) out.character('\t'); }
+                    case "br", "cr" -> { if (start) out.character('\n'); }
+                    case "p" -> { if (!start) out.endParagraph(); }
+                    case "tr" -> { if (start) out.startRow(); else out.endRow(); }
+                    case "tc" -> { if (start) out.startCell(); else out.endCell(); }
+                    default -> { }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return out.written;
+    }
+
+    /**
+     * Lays text out the way XWPFWordExtractor does: one line per paragraph, and table rows as a single
+     * line with cells separated by tabs (paragraph breaks inside a cell are kept between its paragraphs).
+     */
+    private static final class BodyTextWriter {
+        private final TextSink sink;
+        private long written = 0;
+        private boolean inText = false;
+        private int cellDepth = 0;
+        private boolean firstCellInRow = true;
+        private boolean pendingCellBreak = false;
+
+        BodyTextWriter(TextSink sink) {
+            this.sink = sink;
+        }
+
+        void text(char[] chars, int start, int length) throws IOException {
+            if (inText && length > 0) {
+                flushCellBreak();
+                sink.text(chars, start, length);
+                written += length;
+            }
+        }
+
+        void character(char c) throws IOException {
+            flushCellBreak();
+            sink.text(String.valueOf(c));
+            written++;
+        }
+
+        void endParagraph() throws IOException {
+            if (cellDepth > 0) {
+                pendingCellBreak = true;
+            } else {
+                flushCellBreak();
+                sink.endParagraph();
+                written++;
+            }
+        }
+
+        void startRow() {
+            firstCellInRow = true;
+        }
+
+        void endRow() throws IOException {
+            pendingCellBreak = false;
+            sink.endParagraph(); // a table row is laid out as one line
+            written++;
+        }
+
+        void startCell() throws IOException {
+            if (!firstCellInRow) {
+                character('\t');
+            }
+            firstCellInRow = false;
+            cellDepth++;
+        }
+
+        void endCell() {
+            pendingCellBreak = false;
+            cellDepth--;
+        }
+
+        private void flushCellBreak() throws IOException {
+            if (pendingCellBreak) {
+                pendingCellBreak = false;
+                sink.text("\n");
+                written++;
+            }
+        }
+    }
+
+    // Transitional and Strict OOXML use different namespace URIs for the same wordprocessingml elements
+    private static boolean isWordElement(XMLStreamReader reader) {
+        String namespace = reader.getNamespaceURI();
+        return namespace != null && namespace.contains("wordprocessingml");
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Uploaded files are untrusted: no DTDs, no external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link TextSink} that collects text in memory. Paragraph ends are rendered as a newline and page ends
+ * as the configured page separator, so {@link #toString()} is the document text as stored.
+ *
+ * A replayable buffer also remembers where each event happened, so the text can later be pushed into
+ * another sink with its structure intact (used to stitch PDF slices extracted in parallel back into
+ * the caller's sink in page order).
+ */
+public final class TextBuffer implements TextSink {
+
+    private static final String PARAGRAPH_SEPARATOR = "\n";
+    private static final int PARAGRAPH = 0;
+
+    private final StringBuilder text = new StringBuilder();
+    private final String pageSeparator;
+    private final List<int[]> events; // {offset in text, PARAGRAPH or page number}; null when not replayable
+
+    public TextBuffer(String pageSeparator) {
+        this(pageSeparator, false);
+    }
+
+    public TextBuffer(String pageSeparator, boolean replayable) {
+        this.pageSeparator = pageSeparator;
+        this.events = replayable ? new ArrayList<>() : null;
+    }
+
+    @Override
+    public void text(CharSequence chars) {
+        text.append(chars);
+    }
+
+    @Override
+    public void text(char[] chars, int start, int length) {
+        text.append(chars, start, length);
+    }
+
+    @Override
+    public void endParagraph() {
+        record(PARAGRAPH);
+        text.append(PARAGRAPH_SEPARATOR);
+    }
+
+    @Override
+    public void endPage(int pageNumber) {
+        record(pageNumber);
+        text.append(pageSeparator);
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Pushes the buffered text and events into another sink, leaving out this buffer's own separators.
+     */
+    public void replayTo(TextSink sink) throws IOException {
+        if (events == null) {
+            throw new IllegalStateException("Buffer was not created replayable");
+        }
+        int position = 0;
+        for (int[] event : events) {
+            if (event[0] > position) {
+                sink.text(text.subSequence(position, event[0]));
+            }
+            if (event[1] == PARAGRAPH) {
+                sink.endParagraph();
+                position = event[0] + PARAGRAPH_SEPARATOR.length();
+            } else {
+                sink.endPage(event[1]);
+                position = event[0] + pageSeparator.length();
+            }
+        }
+        if (position < text.length()) {
+            sink.text(text.subSequence(position, text.length()));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    private void record(int event) {
+        if (events != null) {
+            events.add(new int[]{text.length(), event});
+        }
+    }
+}
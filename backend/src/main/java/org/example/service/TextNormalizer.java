@@ -0,0 +1,243 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Cleans extracted text before it is stored, so noise is not paid for as input tokens on every question:
+ * running headers/footers and page numbers repeated across pages are dropped, words hyphenated across a
+ * line break are joined, and runs of spaces and blank lines are collapsed. Page boundaries become paragraph
+ * breaks, and neither they nor blank lines are joined across.
+ *
+ * Header/footer detection needs page boundaries, which extractors mark with a form feed ('\f'); text
+ * without them (DOCX, DOC, TXT) only gets de-hyphenation and whitespace clean-up.
+ */
+public class TextNormalizer {
+
+    public static final char PAGE_BREAK = '\f';
+
+    // Lines this close to the top or bottom of a page are header/footer candidates
+    private static final int EDGE_LINES = 2;
+    private static final int MIN_PAGES_FOR_REPEATS = 3;
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private static final Pattern PAGE_NUMBER = Pattern.compile(
+            "(?i)^[-–—\\s]*(page\\s*)?\\d{1,4}(\\s*(of|/)\\s*\\d{1,4})?[-–—\\s]*$");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern INLINE_WHITESPACE = Pattern.compile("[ \\t\\x0B\\u00A0\\u2000-\\u200A\\u202F\\u3000]+");
+    // "self-" at a line end is part of a compound ("self-contained"), not a word split for layout
+    private static final Set<String> COMPOUND_PREFIXES = Set.of("self", "non", "well", "all", "half", "cross",
+            "quasi", "anti");
+
+    private final boolean stripRepeatedLines;
+    private final boolean dehyphenate;
+    private final boolean collapseWhitespace;
+    private final double repeatedLineMinShare;
+
+    public TextNormalizer(boolean stripRepeatedLines, boolean dehyphenate, boolean collapseWhitespace,
+                          double repeatedLineMinShare) {
+        this.stripRepeatedLines = stripRepeatedLines;
+        this.dehyphenate = dehyphenate;
+        this.collapseWhitespace = collapseWhitespace;
+        this.repeatedLineMinShare = Math.min(1.0, Math.max(0.0, repeatedLineMinShare));
+    }
+
+    public boolean isEnabled() {
+        return stripRepeatedLines || dehyphenate || collapseWhitespace;
+    }
+
+    public Result normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new Result(text, 0, 0, 0);
+        }
+
+        List<List<String>> pages = splitPages(text);
+        int removedLines = stripRepeatedLines ? stripHeadersAndFooters(pages) : 0;
+
+        StringBuilder out = new StringBuilder(text.length());
+        int joinedWords = 0;
+        int blankLines = 0;
+        for (List<String> page : pages) {
+            for (String rawLine : page) {
+                String line = collapseWhitespace ? INLINE_WHITESPACE.matcher(rawLine).replaceAll(" ").strip() : rawLine;
+
+                if (collapseWhitespace && line.isEmpty()) {
+                    blankLines++;
+                    continue;
+                }
+
+                if (dehyphenate && blankLines == 0 && endsWithHyphenatedWord(out) && startsWithLowercase(line)) {
+                    // "exam-" + "ple" -> "example": drop the hyphen and the line break between them;
+                    // "self-" + "contained" keeps its hyphen
+                    out.setLength(out.length() - (isCompoundPrefix(out) ? 1 : 2));
+                    joinedWords++;
+                } else if (collapseWhitespace && blankLines > 0 && out.length() > 0) {
+                    out.append('\n'); // keep one blank line as a paragraph break
+                }
+                blankLines = 0;
+                out.append(line).append('\n');
+            }
+            if (page != pages.get(pages.size() - 1)) {
+                if (collapseWhitespace) {
+                    blankLines = Math.max(blankLines, 1); // the next page starts a new paragraph
+                } else {
+                    out.append('\n');
+                }
+            }
+        }
+
+        String normalized = collapseWhitespace ? out.toString().strip() : out.toString();
+        return new Result(normalized, text.length() - normalized.length(), removedLines, joinedWords);
+    }
+
+    private static List<List<String>> splitPages(String text) {
+        List<List<String>> pages = new ArrayList<>();
+        for (String page : text.split(String.valueOf(PAGE_BREAK), -1)) {
+            List<String> lines = new ArrayList<>();
+            for (String line : page.split("\\r?\\n|\\r", -1)) {
+                lines.add(line);
+            }
+            pages.add(lines);
+        }
+        // A trailing page break leaves an empty last "page"
+        if (pages.size() > 1 && pages.get(pages.size() - 1).stream().allMatch(String::isBlank)) {
+            pages.remove(pages.size() - 1);
+        }
+        return pages;
+    }
+
+    /**
+     * A line near the top (or bottom) of a page is a running header (or footer) if, ignoring digits so
+     * "Page 3" matches "Page 4", it shows up at the same edge of enough pages. Standalone page numbers
+     * at a page edge are dropped too.
+     */
+    private int stripHeadersAndFooters(List<List<String>> pages) {
+        if (pages.size() < MIN_PAGES_FOR_REPEATS) {
+            return 0;
+        }
+
+        Map<String, Integer> topLines = new HashMap<>();
+        Map<String, Integer> bottomLines = new HashMap<>();
+        for (List<String> page : pages) {
+            countKeys(page, edgeLineIndexes(page, true), topLines);
+            countKeys(page, edgeLineIndexes(page, false), bottomLines);
+        }
+
+        int minPages = Math.max(2, (int) Math.ceil(pages.size() * repeatedLineMinShare));
+        int removed = 0;
+        for (List<String> page : pages) {
+            Set<Integer> drop = new HashSet<>();
+            collectRepeated(page, edgeLineIndexes(page, true), topLines, minPages, drop);
+            collectRepeated(page, edgeLineIndexes(page, false), bottomLines, minPages, drop);
+            for (int index = page.size() - 1; index >= 0; index--) {
+                if (drop.contains(index)) {
+                    page.remove(index);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static void countKeys(List<String> page, List<Integer> indexes, Map<String, Integer> counts) {
+        Set<String> seen = new HashSet<>();
+        for (int index : indexes) {
+            String key = repeatKey(page.get(index));
+            if (!key.isEmpty() && seen.add(key)) {
+                counts.merge(key, 1, Integer::sum);
+            }
+        }
+    }
+
+    private static void collectRepeated(List<String> page, List<Integer> indexes, Map<String, Integer> counts,
+                                        int minPages, Set<Integer> drop) {
+        for (int index : indexes) {
+            String line = page.get(index);
+            if (PAGE_NUMBER.matcher(line.strip()).matches() || counts.getOrDefault(repeatKey(line), 0) >= minPages) {
+                drop.add(index);
+            }
+        }
+    }
+
+    // Indexes of the first (top) or last (bottom) EDGE_LINES non-blank lines of a page. Pages too short
+    // to have a body between header and footer are left alone.
+    private static List<Integer> edgeLineIndexes(List<String> page, boolean top) {
+        List<Integer> indexes = new ArrayList<>(EDGE_LINES);
+        if (page.stream().filter(line -> !line.isBlank()).count() <= 2L * EDGE_LINES) {
+            return indexes;
+        }
+        for (int n = 0; n < page.size() && indexes.size() < EDGE_LINES; n++) {
+            int i = top ? n : page.size() - 1 - n;
+            if (!page.get(i).isBlank()) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    private static String repeatKey(String line) {
+        String key = INLINE_WHITESPACE.matcher(line).replaceAll(" ").strip().toLowerCase();
+        return DIGITS.matcher(key).replaceAll("#");
+    }
+
+    private static boolean endsWithHyphenatedWord(StringBuilder out) {
+        int length = out.length();
+        return length >= 3 && out.charAt(length - 1) == '\n' && out.charAt(length - 2) == '-'
+                && Character.isLetter(out.charAt(length - 3));
+    }
+
+    // The word before the trailing "-\n" of out
+    private static boolean isCompoundPrefix(StringBuilder out) {
+        int end = out.length() - 2;
+        int start = end;
+        while (start > 0 && Character.isLetter(out.charAt(start - 1))) {
+            start--;
+        }
+        return COMPOUND_PREFIXES.contains(out.substring(start, end).toLowerCase());
+    }
+
+    private static boolean startsWithLowercase(String line) {
+        return !line.isEmpty() && Character.isLowerCase(line.charAt(0));
+    }
+
+    public static int estimateTokens(long characters) {
+        return (int) Math.min(Integer.MAX_VALUE, (characters + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN);
+    }
+
+    /**
+     * Normalised text plus what was removed; token savings use the usual ~4 characters per token estimate.
+     */
+    public static class Result {
+        private final String text;
+        private final int charactersSaved;
+        private final int headerFooterLinesRemoved;
+        private final int hyphenationsJoined;
+
+        Result(String text, int charactersSaved, int headerFooterLinesRemoved, int hyphenationsJoined) {
+            this.text = text;
+            this.charactersSaved = Math.max(0, charactersSaved);
+            this.headerFooterLinesRemoved = headerFooterLinesRemoved;
+            this.hyphenationsJoined = hyphenationsJoined;
+        }
+
+        public String getText() { return text; }
+        public int getCharactersSaved() { return charactersSaved; }
+        public int getEstimatedTokensSaved() { return estimateTokens(charactersSaved); }
+        public int getHeaderFooterLinesRemoved() { return headerFooterLinesRemoved; }
+        public int getHyphenationsJoined() { return hyphenationsJoined; }
+
+        public Map<String, Object> toMap() {
+            return Map.of(
+                    "charactersSaved", charactersSaved,
+                    "estimatedTokensSaved", getEstimatedTokensSaved(),
+                    "headerFooterLinesRemoved", headerFooterLinesRemoved,
+                    "hyphenationsJoined", hyphenationsJoined
+            );
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * Receives a document's text from a {@link DocumentExtractor} while it is being extracted, instead of
+ * the extractor returning one string at the end. Structure is reported as events: the end of a
+ * paragraph (or of a line, for formats that have no paragraphs) and the end of a page, for formats
+ * that have pages. How those events are rendered in stored text is up to the sink.
+ *
+ * Implementations may throw {@link ExtractionBudget.LimitExceededException} to stop the extractor;
+ * extractors let it propagate. Sinks are not thread-safe.
+ */
+public interface TextSink {
+
+    void text(CharSequence text) throws IOException;
+
+    default void text(char[] chars, int start, int length) throws IOException {
+        text(CharBuffer.wrap(chars, start, length));
+    }
+
+    void endParagraph() throws IOException;
+
+    // pageNumber is 1-based
+    void endPage(int pageNumber) throws IOException;
+
+    // For libraries that write to a Writer (PDFBox, Reader.transferTo): every write becomes a text event
+    static Writer asWriter(TextSink sink) {
+        return new Writer() {
+            @Override
+            public void write(char[] chars, int offset, int length) throws IOException {
+                sink.text(chars, offset, length);
+            }
+
+            @Override
+            public void write(String text, int offset, int length) throws IOException {
+                sink.text(text.subSequence(offset, offset + length));
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
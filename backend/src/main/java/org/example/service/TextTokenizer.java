@@ -0,0 +1,65 @@
+package org.example.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Shared tokenizer for document retrieval and search.
+ * Splits text into lower-cased letter/digit runs and drops common English stop words.
+ */
+public final class TextTokenizer {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "from", "has", "have",
+            "he", "her", "his", "i", "if", "in", "into", "is", "it", "its", "me", "my", "no", "not",
+            "of", "on", "or", "our", "she", "so", "such", "that", "the", "their", "them", "then",
+            "there", "these", "they", "this", "to", "was", "we", "were", "what", "when", "where",
+            "which", "who", "why", "will", "with", "would", "you", "your", "can", "do", "does",
+            "did", "about", "please", "tell", "give", "all", "any", "how"
+    );
+
+    private TextTokenizer() {}
+
+    @FunctionalInterface
+    public interface TokenVisitor {
+        void token(String term, int start, int end);
+    }
+
+    public static List<String> tokenize(CharSequence text) {
+        List<String> terms = new ArrayList<>();
+        if (text != null) {
+            forEachToken(text, 0, text.length(), (term, start, end) -> terms.add(term));
+        }
+        return terms;
+    }
+
+    /**
+     * Visits every indexable token in {@code text[from, to)} with its character offsets.
+     */
+    public static void forEachToken(CharSequence text, int from, int to, TokenVisitor visitor) {
+        int i = from;
+        while (i < to) {
+            while (i < to && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < to && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                String term = text.subSequence(start, i).toString().toLowerCase(Locale.ROOT);
+                if (isIndexable(term)) {
+                    visitor.token(term, start, i);
+                }
+            }
+        }
+    }
+
+    public static boolean isIndexable(String term) {
+        return (term.length() > 1 || Character.isDigit(term.charAt(0)))
+                && term.length() <= 64
+                && !STOP_WORDS.contains(term);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket holding up to {@code burst} tokens, refilled at {@code permitsPerMinute}.
+ * The whole state is one timestamp - the moment the bucket would be full again (the GCRA form of a
+ * token bucket) - so taking a token is a single compare-and-set and no thread ever waits on another.
+ */
+public final class TokenBucket {
+
+    private final long intervalNanos;  // refill time of one token
+    private final long capacityNanos;  // refill time of a full bucket
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int permitsPerMinute, int burst) {
+        if (permitsPerMinute <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerMinute and burst must be positive");
+        }
+        this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / permitsPerMinute;
+        this.capacityNanos = intervalNanos * burst;
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next one is available
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long base = Math.max(current, now);
+            long next = base + intervalNanos;
+            if (next - now > capacityNanos) {
+                return next - now - capacityNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // Returns a token taken by tryAcquire when the call it was taken for did not go ahead
+    public void refund() {
+        fullAt.addAndGet(-intervalNanos);
+    }
+
+    // Nanoseconds until a token is available, without taking one
+    public long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        return Math.max(0, Math.max(fullAt.get(), now) + intervalNanos - now - capacityNanos);
+    }
+
+    public boolean isFull() {
+        return fullAt.get() - System.nanoTime() <= 0;
+    }
+
+    public void reset() {
+        fullAt.set(System.nanoTime());
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedTextTest {
+
+    private static final String EMOJI = "📄"; // one code point, two chars
+
+    @Test
+    public void compress_roundTripsTextSpanningSeveralBlocks() {
+        String original = sample(CompressedText.BLOCK_CHARS * 3 + 123);
+
+        CompressedText text = CompressedText.compress(original);
+
+        assertEquals(original.length(), text.length());
+        assertEquals(original, text.toString());
+        assertTrue(text.getCompressedBytes() < original.length());
+    }
+
+    @Test
+    public void compress_keepsSurrogatePairTogetherAtBlockBoundary() {
+        // Put the high surrogate exactly on the last char of the first block
+        String original = "a".repeat(CompressedText.BLOCK_CHARS - 1) + EMOJI + "b".repeat(100);
+
+        CompressedText text = CompressedText.compress(original);
+
+        assertEquals(original, text.toString());
+        int boundary = CompressedText.BLOCK_CHARS - 1;
+        assertEquals(original.charAt(boundary), text.charAt(boundary));
+        assertEquals(original.charAt(boundary + 1), text.charAt(boundary + 1));
+        assertTrue(Character.isHighSurrogate(text.charAt(boundary)));
+        assertEquals(EMOJI, text.subSequence(boundary, boundary + 2).toString());
+        assertEquals(original.substring(boundary - 5, boundary + 10), text.subSequence(boundary - 5, boundary + 10).toString());
+    }
+
+    @Test
+    public void randomAccess_matchesOriginalAcrossBlocks() {
+        String original = sample(CompressedText.BLOCK_CHARS * 2 + 500);
+        CompressedText text = CompressedText.compress(original);
+
+        int[] indexes = {0, 1, CompressedText.BLOCK_CHARS - 2, CompressedText.BLOCK_CHARS - 1, CompressedText.BLOCK_CHARS,
+                CompressedText.BLOCK_CHARS + 1, CompressedText.BLOCK_CHARS * 2, original.length() - 1, 17, 70_000, 3};
+        for (int index : indexes) {
+            assertEquals(original.charAt(index), text.charAt(index));
+        }
+
+        int start = CompressedText.BLOCK_CHARS - 300;
+        int end = CompressedText.BLOCK_CHARS * 2 + 300;
+        assertEquals(original.substring(start, end), text.subSequence(start, end).toString());
+        assertEquals("", text.subSequence(start, start).toString());
+
+        StringBuilder appended = new StringBuilder("> ");
+        text.appendTo(appended, 10, 20);
+        assertEquals("> " + original.substring(10, 20), appended.toString());
+    }
+
+    @Test
+    public void charAt_rejectsIndexOutOfRange() {
+        CompressedText text = CompressedText.compress("short");
+        try {
+            text.charAt(5);
+            fail("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+        try {
+            text.subSequence(3, 2);
+            fail("expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void compress_handlesEmptyText() {
+        CompressedText text = CompressedText.compress("");
+
+        assertEquals(0, text.length());
+        assertEquals("", text.toString());
+    }
+
+    // Mixed ASCII, accented and astral characters so blocks differ in UTF-8 size
+    private static String sample(int length) {
+        StringBuilder text = new StringBuilder(length + 2);
+        int line = 0;
+        while (text.length() < length) {
+            text.append("Line ").append(line++).append(": café ").append(EMOJI).append(" résumé naïve\n");
+        }
+        text.setLength(length);
+        if (Character.isHighSurrogate(text.charAt(length - 1))) {
+            text.setCharAt(length - 1, '.');
+        }
+        return text.toString();
+    }
+}
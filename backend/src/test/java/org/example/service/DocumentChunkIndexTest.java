@@ -0,0 +1,68 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentChunkIndexTest {
+
+    @Test
+    public void search_ranksChunkContainingQueryTermsFirst() {
+        DocumentChunkIndex index = new DocumentChunkIndex(200, 20);
+        String contract = "The tenant shall pay rent monthly. ".repeat(10)
+                + "Termination requires ninety days written notice to the landlord. "
+                + "Other clauses cover maintenance and repairs. ".repeat(10);
+        index.addDocument("lease", contract);
+        index.addDocument("manual", "Install the printer driver and restart the computer. ".repeat(10));
+
+        List<DocumentChunkIndex.ScoredChunk> results = index.search("What notice is needed for termination?", 3);
+
+        assertFalse(results.isEmpty());
+        DocumentChunkIndex.ScoredChunk best = results.get(0);
+        assertEquals("lease", best.getDocumentId());
+        assertTrue(contract.substring(best.getStart(), best.getEnd()).contains("Termination"));
+        assertTrue(results.stream().noneMatch(chunk -> chunk.getDocumentId().equals("manual")));
+    }
+
+    @Test
+    public void split_coversWholeDocumentWithoutGaps() {
+        DocumentChunkIndex index = new DocumentChunkIndex(300, 50);
+        String text = "Sentence number one is here. ".repeat(100);
+        int chunks = index.addDocument("doc", text);
+
+        List<DocumentChunkIndex.ScoredChunk> ordered = index.leadingChunks(chunks);
+
+        assertEquals(chunks, ordered.size());
+        assertEquals(0, ordered.get(0).getStart());
+        assertEquals(text.length(), ordered.get(ordered.size() - 1).getEnd());
+        for (int i = 1; i < ordered.size(); i++) {
+            assertTrue(ordered.get(i).getStart() <= ordered.get(i - 1).getEnd());
+            assertTrue(ordered.get(i).getStart() > ordered.get(i - 1).getStart());
+        }
+    }
+
+    @Test
+    public void removeDocument_keepsOtherDocumentsSearchable() {
+        DocumentChunkIndex index = new DocumentChunkIndex(200, 20);
+        index.addDocument("draft", "Invoice totals are due within thirty days. ".repeat(10));
+        int chunks = index.addDocument("final", "Invoice totals are due within sixty days. ".repeat(10));
+
+        index.removeDocument("draft");
+
+        assertEquals(chunks, index.size());
+        List<DocumentChunkIndex.ScoredChunk> results = index.search("invoice sixty", 10);
+        assertEquals(chunks, results.size());
+        assertTrue(results.stream().allMatch(chunk -> chunk.getDocumentId().equals("final")));
+        assertTrue(index.search("thirty", 10).isEmpty());
+    }
+
+    @Test
+    public void search_withOnlyStopWords_returnsNothing() {
+        DocumentChunkIndex index = new DocumentChunkIndex(200, 20);
+        index.addDocument("doc", "Some content about invoices and payments.");
+
+        assertTrue(index.search("what is the", 5).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentFormatTest {
+
+    @Test
+    public void detect_zipWithWordPart_isDocx() throws IOException {
+        Path file = zip("[Content_Types].xml", "word/document.xml");
+        try {
+            assertEquals(DocumentFormat.DOCX, detect(file, "report.bin", "application/octet-stream"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void detect_spreadsheetPackage_isNotDocx() throws IOException {
+        Path file = zip("[Content_Types].xml", "xl/workbook.xml");
+        try {
+            assertEquals(DocumentFormat.UNKNOWN, detect(file, "figures.xlsx", "application/octet-stream"));
+            assertEquals(DocumentFormat.UNKNOWN, detect(file, "archive.zip", "application/zip"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void detect_pdfHeaderOnlyCountsAtStart() throws IOException {
+        Path quoted = write("Every PDF starts with %PDF-1.7 followed by objects.".getBytes(StandardCharsets.UTF_8));
+        Path padded = write("\uFEFF\n%PDF-1.7\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            assertEquals(DocumentFormat.TEXT, detect(quoted, "notes.txt", "text/plain"));
+            assertEquals(DocumentFormat.UNKNOWN, detect(quoted, "notes.md", "text/markdown"));
+            assertEquals(DocumentFormat.PDF, detect(padded, "scan", null));
+        } finally {
+            Files.deleteIfExists(quoted);
+            Files.deleteIfExists(padded);
+        }
+    }
+
+    @Test
+    public void detect_binaryWithoutSignature_fallsBackToDeclaredType() throws IOException {
+        Path file = write(new byte[]{'x', 0, 1, 2, '%', 'P', 'D', 'F', '-'});
+        try {
+            assertEquals(DocumentFormat.PDF, detect(file, "broken.pdf", null));
+            assertEquals(DocumentFormat.UNKNOWN, detect(file, "blob.bin", "application/octet-stream"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static DocumentFormat detect(Path file, String filename, String contentType) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int length = Math.min(bytes.length, DocumentFormat.SNIFF_LENGTH);
+        return DocumentFormat.detect(bytes, length, file, filename, contentType);
+    }
+
+    private static Path zip(String... entries) throws IOException {
+        Path file = Files.createTempFile("format-test-", ".zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(file))) {
+            for (String entry : entries) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write("<x/>".getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static Path write(byte[] bytes) throws IOException {
+        Path file = Files.createTempFile("format-test-", ".bin");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(bytes);
+        }
+        return file;
+    }
+}
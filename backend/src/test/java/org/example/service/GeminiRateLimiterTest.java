@@ -0,0 +1,89 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeminiRateLimiterTest {
+
+    @Test
+    public void tryAcquire_limitsEachUserSeparately() {
+        GeminiRateLimiter limiter = limiter(10, 1, 2);
+
+        assertEquals(0, limiter.tryAcquire("alice"));
+        assertEquals(0, limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("alice") > 0);
+
+        assertEquals(0, limiter.tryAcquire("bob"));
+    }
+
+    @Test
+    public void tryAcquire_refundsUserPermitWhenGlobalBucketIsEmpty() {
+        GeminiRateLimiter limiter = limiter(1, 1, 1);
+
+        assertEquals(0, limiter.tryAcquire("alice"));
+        assertTrue(limiter.tryAcquire("bob") > 0); // global bucket empty
+        assertTrue(limiter.millisUntilAvailable() > 0);
+
+        globalBucket(limiter).reset();
+
+        assertEquals(0, limiter.tryAcquire("bob")); // bob's own permit was handed back
+    }
+
+    @Test
+    public void recordFailure_pausesAllCallsWithGrowingBackoff() {
+        GeminiRateLimiter limiter = limiter(10, 10, 10);
+
+        assertEquals(2000, limiter.getBackoffMillis(1));
+        assertEquals(4000, limiter.getBackoffMillis(2));
+        assertEquals(5000, limiter.getBackoffMillis(3));
+
+        assertEquals(1, limiter.recordFailure());
+        assertEquals(2, limiter.recordFailure());
+        long wait = limiter.tryAcquire("alice");
+        assertTrue(wait > 2000 && wait <= 4000, "wait was " + wait);
+        assertTrue(limiter.millisUntilAvailable() > 2000);
+
+        limiter.recordSuccess();
+        assertEquals(0, limiter.getConsecutiveFailures());
+        assertTrue(limiter.tryAcquire("alice") > 0); // the pause already started still runs out
+
+        limiter.clearBackoff();
+        assertEquals(0, limiter.millisUntilAvailable());
+        assertEquals(0, limiter.tryAcquire("alice"));
+    }
+
+    @Test
+    public void clearBackoff_leavesTokenBucketsUnchanged() {
+        GeminiRateLimiter limiter = limiter(2, 1, 1);
+
+        assertEquals(0, limiter.tryAcquire("alice"));
+        assertEquals(0, limiter.tryAcquire("bob")); // global bucket now empty
+        limiter.recordFailure();
+
+        limiter.clearBackoff();
+
+        assertEquals(0, limiter.getConsecutiveFailures());
+        assertTrue(limiter.tryAcquire("alice") > 0); // alice's own limit still applies
+        assertTrue(limiter.tryAcquire("carol") > 0); // and so does the global one
+        assertTrue(limiter.millisUntilAvailable() > 0);
+    }
+
+    private static GeminiRateLimiter limiter(int globalBurst, int userRequestsPerMinute, int userBurst) {
+        GeminiRateLimiter limiter = new GeminiRateLimiter();
+        ReflectionTestUtils.setField(limiter, "globalRequestsPerMinute", 1);
+        ReflectionTestUtils.setField(limiter, "globalBurst", globalBurst);
+        ReflectionTestUtils.setField(limiter, "userRequestsPerMinute", userRequestsPerMinute);
+        ReflectionTestUtils.setField(limiter, "userBurst", userBurst);
+        ReflectionTestUtils.setField(limiter, "maxTrackedUsers", 100);
+        ReflectionTestUtils.setField(limiter, "backoffBaseMs", 1000L);
+        ReflectionTestUtils.setField(limiter, "backoffMaxMs", 5000L);
+        limiter.init();
+        return limiter;
+    }
+
+    private static TokenBucket globalBucket(GeminiRateLimiter limiter) {
+        return (TokenBucket) ReflectionTestUtils.getField(limiter, "globalBucket");
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextNormalizerTest {
+
+    private final TextNormalizer normalizer = new TextNormalizer(true, true, true, 0.5);
+
+    @Test
+    public void normalize_stripsRepeatedHeadersFootersAndPageNumbers() {
+        String[] topics = {"Revenue grew in every region.", "Costs were flat year on year.",
+                "Headcount rose to 1200 staff.", "Outlook remains cautious."};
+        StringBuilder text = new StringBuilder();
+        for (int page = 1; page <= 4; page++) {
+            text.append("ACME Corp Annual Report\n")
+                    .append(topics[page - 1]).append("\n")
+                    .append("Details for section ").append((char) ('A' + page)).append(" follow.\n")
+                    .append("Figures are unaudited.\n")
+                    .append("Confidential - do not distribute\n")
+                    .append("Page ").append(page).append(" of 4\n")
+                    .append(TextNormalizer.PAGE_BREAK);
+        }
+
+        TextNormalizer.Result result = normalizer.normalize(text.toString());
+
+        assertFalse(result.getText().contains("ACME Corp"));
+        assertFalse(result.getText().contains("Confidential"));
+        assertFalse(result.getText().contains("of 4"));
+        assertTrue(result.getText().contains("Headcount rose to 1200 staff."));
+        assertEquals(12, result.getHeaderFooterLinesRemoved());
+    }
+
+    @Test
+    public void normalize_keepsPageBoundaryAsParagraphBreak() {
+        String text = "End of the first page.\n" + TextNormalizer.PAGE_BREAK + "Start of the second page.\n";
+
+        String normalized = normalizer.normalize(text).getText();
+
+        assertEquals("End of the first page.\n\nStart of the second page.", normalized);
+    }
+
+    @Test
+    public void normalize_joinsHyphenationOnlyWithinParagraph() {
+        String text = "The exam-\nple shows it.\nA paragraph ending in a dash-\n\nstarts another one.\n"
+                + "The last word on this page is inter-\n" + TextNormalizer.PAGE_BREAK + "national news.\n";
+
+        TextNormalizer.Result result = normalizer.normalize(text);
+
+        assertTrue(result.getText().contains("The example shows it."));
+        assertTrue(result.getText().contains("dash-\n\nstarts another one."));
+        assertTrue(result.getText().contains("inter-\n\nnational news."));
+        assertEquals(1, result.getHyphenationsJoined());
+    }
+
+    @Test
+    public void normalize_keepsHyphenOfCompoundsBrokenAtLineEnd() {
+        String normalized = normalizer.normalize("The module is self-\ncontained and well-\nknown.").getText();
+
+        assertEquals("The module is self-contained and well-known.", normalized);
+    }
+
+    @Test
+    public void normalize_collapsesInlineWhitespaceAndBlankLines() {
+        String normalized = normalizer.normalize("  Too    many\t spaces.\n\n\n\nNext   paragraph.  ").getText();
+
+        assertEquals("Too many spaces.\n\nNext paragraph.", normalized);
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+
+    @Test
+    public void tryAcquire_grantsBurstThenReportsWait() {
+        TokenBucket bucket = new TokenBucket(60, 3);
+
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+
+        long wait = bucket.tryAcquire();
+        assertTrue(wait > 0 && wait <= TimeUnit.SECONDS.toNanos(1), "wait was " + wait);
+        assertTrue(bucket.nanosUntilAvailable() > 0);
+        assertFalse(bucket.isFull());
+    }
+
+    @Test
+    public void refund_returnsTakenToken() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+
+        assertEquals(0, bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire() > 0);
+
+        bucket.refund();
+
+        assertEquals(0, bucket.nanosUntilAvailable());
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    public void reset_refillsBucket() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+        assertFalse(bucket.isFull());
+
+        bucket.reset();
+
+        assertTrue(bucket.isFull());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    public void tryAcquire_concurrentCallersNeverExceedBurst() throws Exception {
+        int burst = 50;
+        int threads = 8;
+        TokenBucket bucket = new TokenBucket(1, burst); // one token a minute: no refill during the test
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 100; i++) {
+                        if (bucket.tryAcquire() == 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(burst, granted.get());
+    }
+
+    @Test
+    public void constructor_rejectsNonPositiveSettings() {
+        try {
+            new TokenBucket(0, 1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
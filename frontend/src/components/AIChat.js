@@ -1,6 +1,7 @@
 // src/components/AIChat.js
 import React, { useState, useRef, useEffect, useCallback, useMemo } from 'react';
 import { API_BASE_URL } from '../config';
+import { aiHeaders } from '../utils/session';
 const MessageComponent = ({ message }) => {
     const isUser = message.type === 'user';
     
@@ -163,6 +164,7 @@ useEffect(() => {
             
             const response = await fetch(`${API_BASE_URL}/api/ai/upload`, {
               method: 'POST',
+              headers: aiHeaders(),
               body: formData
             });
             
@@ -215,6 +217,7 @@ useEffect(() => {
 
         const response = await fetch(`${API_BASE_URL}/api/ai/upload/multiple`, {
           method: 'POST',
+          headers: aiHeaders(),
           body: formData
         });
 
@@ -507,10 +510,10 @@ const tryAIQuery = useCallback(async (question) => {
 
         const response = await fetch(`${API_BASE_URL}/api/ai/ask`, {
             method: 'POST',
-            headers: { 
+            headers: aiHeaders({
                 'Content-Type': 'application/json',
                 'Accept': 'application/json'
-            },
+            }),
             body: JSON.stringify(requestPayload)
         });
 
@@ -701,7 +704,7 @@ const tryAIQuery = useCallback(async (question) => {
     setLastRequestTime(currentTime);
 
     try {
-      const response = await fetch(`${API_BASE_URL}/api/ai/summary`);
+      const response = await fetch(`${API_BASE_URL}/api/ai/summary`, { headers: aiHeaders() });
       const data = await response.json();
 
       let summaryContent;
@@ -754,7 +757,7 @@ const tryAIQuery = useCallback(async (question) => {
       
       const response = await fetch(`${API_BASE_URL}/api/ai/documents`, {
         method: 'DELETE',
-        headers: { 'Content-Type': 'application/json' }
+        headers: aiHeaders({ 'Content-Type': 'application/json' })
       });
 
       if (response.ok) {
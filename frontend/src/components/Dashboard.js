@@ -8,6 +8,7 @@ import pdfToText from 'react-pdftotext';
 import AIChat from './AIChat';
 import HistorySidebar from './HistorySidebar';
 import { API_BASE_URL } from '../config';
+import { aiHeaders } from '../utils/session';
 
 const Dashboard = ({ user, onLogout }) => {
   // ONE SESSION FOR ALL ACTIVITIES
@@ -123,7 +124,7 @@ const clearAllSessionData = () => {
     });
     
     // Clear AI backend
-    fetch(`${API_BASE_URL}/api/ai/documents`, { method: 'DELETE' })
+    fetch(`${API_BASE_URL}/api/ai/documents`, { method: 'DELETE', headers: aiHeaders() })
         .catch(err => console.warn('Failed to clear AI backend:', err));
         
     console.log('🗑️ All session data cleared completely');
@@ -275,6 +276,7 @@ const recordInUnifiedSession = async (activityType, activityData) => {
 
         const aiUploadResponse = await fetch(`${API_BASE_URL}/api/ai/upload/multiple`, {
             method: 'POST',
+            headers: aiHeaders(),
             body: formData
         });
 
@@ -300,6 +302,7 @@ const processedNewFiles = await Promise.all(
         try {
             const response = await fetch(`${API_BASE_URL}/api/ai/upload`, {
                 method: 'POST',
+                headers: aiHeaders(),
                 body: formData
             });
             if (response.ok) {
@@ -549,7 +552,7 @@ const clearAIBackendCache = async () => {
         const cacheStrategies = [
             fetch(`${API_BASE_URL}/api/ai/clear-cache`, {
                 method: 'POST',
-                headers: { 'Content-Type': 'application/json' },
+                headers: aiHeaders({ 'Content-Type': 'application/json' }),
                 body: JSON.stringify({
                     userId: user?.userId,
                     sessionId: currentSessionId,
@@ -561,7 +564,7 @@ const clearAIBackendCache = async () => {
             
             fetch(`${API_BASE_URL}/api/ai/reset-context`, {
                 method: 'POST',
-                headers: { 'Content-Type': 'application/json' },
+                headers: aiHeaders({ 'Content-Type': 'application/json' }),
                 body: JSON.stringify({
                     userId: user?.userId,
                     action: 'new_session',
@@ -938,7 +941,7 @@ const reuploadSessionDocumentsToAI = async (sessionFiles) => {
     
     // ✅ Clear AI backend first
     try {
-        await fetch(`${API_BASE_URL}/api/ai/documents`, { method: 'DELETE' });
+        await fetch(`${API_BASE_URL}/api/ai/documents`, { method: 'DELETE', headers: aiHeaders() });
         console.log('✅ Cleared AI backend before restoration');
     } catch (error) {
         console.warn('⚠️ Could not clear AI backend:', error);
@@ -977,6 +980,7 @@ const reuploadSessionDocumentsToAI = async (sessionFiles) => {
 
             const response = await fetch(`${API_BASE_URL}/api/ai/upload`, {
                 method: 'POST',
+                headers: aiHeaders(),
                 body: formData
             });
 
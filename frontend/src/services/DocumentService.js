@@ -2,6 +2,8 @@
 
 import * as pdfjsLib from 'pdfjs-dist';
 import mammoth from 'mammoth';
+import { API_BASE_URL } from '../config';
+import { aiHeaders } from '../utils/session';
 
 // Configure PDF.js worker - CRITICAL for PDF processing
 pdfjsLib.GlobalWorkerOptions.workerSrc = `//cdnjs.cloudflare.com/ajax/libs/pdf.js/${pdfjsLib.version}/pdf.worker.min.js`;
@@ -135,6 +137,21 @@ class DocumentService {
     };
   }
 
+  // Server-side ranked search backed by the backend inverted index
+  async searchOnServer(query, { maxResults = 20, snippetsPerDocument = 5, userId } = {}) {
+    const response = await fetch(`${API_BASE_URL}/api/ai/search`, {
+      method: 'POST',
+      headers: aiHeaders({ 'Content-Type': 'application/json' }),
+      body: JSON.stringify({ query, maxResults, snippetsPerDocument, userId })
+    });
+
+    const data = await response.json();
+    if (!response.ok || !data.success) {
+      throw new Error(data.error || `Search failed with status ${response.status}`);
+    }
+    return data;
+  }
+
   // File validation
   validateFileType(file) {
     const allowedTypes = [
@@ -0,0 +1,20 @@
+// src/utils/session.js
+
+const AI_SESSION_KEY = 'aiSessionId';
+
+// Id of this tab's document set on the backend; every /api/ai call sends it as X-Session-ID
+export const getAiSessionId = () => {
+  let sessionId = sessionStorage.getItem(AI_SESSION_KEY);
+  if (!sessionId) {
+    sessionId = window.crypto?.randomUUID
+      ? window.crypto.randomUUID()
+      : `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}`;
+    sessionStorage.setItem(AI_SESSION_KEY, sessionId);
+  }
+  return sessionId;
+};
+
+export const aiHeaders = (headers = {}) => ({
+  ...headers,
+  'X-Session-ID': getAiSessionId()
+});